@@ -0,0 +1,307 @@
+package com.airtribe.ridewise.bench;
+
+import com.airtribe.ridewise.index.RoadGraph;
+import com.airtribe.ridewise.index.RoadGraphBuilder;
+import com.airtribe.ridewise.index.ZoneGrid;
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Ride;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.service.EtaService;
+import com.airtribe.ridewise.service.FareQuoteService;
+import com.airtribe.ridewise.service.RideService;
+import com.airtribe.ridewise.service.ZoneDispatcher;
+import com.airtribe.ridewise.strategy.DefaultFareStrategy;
+import com.airtribe.ridewise.strategy.EtaRankedDriverStrategy;
+import com.airtribe.ridewise.strategy.FareStrategy;
+import com.airtribe.ridewise.strategy.GridNearestDriverStrategy;
+import com.airtribe.ridewise.strategy.LeastActiveDriverStrategy;
+import com.airtribe.ridewise.strategy.NearestDriverStrategy;
+import com.airtribe.ridewise.strategy.OneToManyEtaDriverStrategy;
+import com.airtribe.ridewise.strategy.PeakHourFareStrategy;
+import com.airtribe.ridewise.strategy.RideMatchingStrategy;
+import com.airtribe.ridewise.strategy.SoaNearestDriverStrategy;
+import com.airtribe.ridewise.util.IdGenerator;
+import com.airtribe.ridewise.util.IdInterner;
+import com.airtribe.ridewise.util.IntObjectMap;
+import com.airtribe.ridewise.util.SnowflakeIdGenerator;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Usage: java -cp bin com.airtribe.ridewise.bench.BenchmarkRunner
+//            [--suites matching,fare,ids,cycle,zones,lookup,eta] [--sizes 100,10000] [--ratios 0.1,0.5] [--quick] [--csv]
+public class BenchmarkRunner {
+    private static final int RIDER_POOL = 4096;
+    private static final long SCAN_BUDGET = 20_000_000L;
+    private static final int CANDIDATES = 8;
+    private static final long ETA_CUTOFF_MILLIS = 10 * 60_000L;
+
+    public static void main(String[] args) throws Exception {
+        Set<String> suites = new HashSet<>(Arrays.asList("matching", "fare", "ids", "cycle", "zones", "lookup", "eta"));
+        int[] sizes = { 100, 10_000, 100_000, 1_000_000 };
+        double[] ratios = { 0.1, 0.5, 0.9 };
+        boolean quick = false;
+        boolean csv = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--suites":
+                    suites = new HashSet<>(Arrays.asList(args[++i].split(",")));
+                    break;
+                case "--sizes":
+                    sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--ratios":
+                    ratios = Arrays.stream(args[++i].split(",")).mapToDouble(Double::parseDouble).toArray();
+                    break;
+                case "--quick":
+                    quick = true;
+                    break;
+                case "--csv":
+                    csv = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Harness harness = quick ? new Harness(1, 2, csv) : new Harness(3, 5, csv);
+        if (csv) {
+            System.out.println(Harness.Result.csvHeader());
+        }
+        if (suites.contains("matching")) {
+            matching(harness, sizes, ratios);
+        }
+        if (suites.contains("fare")) {
+            fare(harness);
+        }
+        if (suites.contains("ids")) {
+            ids(harness);
+        }
+        if (suites.contains("cycle")) {
+            cycle(harness);
+        }
+        if (suites.contains("zones")) {
+            zones(harness);
+        }
+        if (suites.contains("lookup")) {
+            lookup(harness);
+        }
+        if (suites.contains("eta")) {
+            eta(harness);
+        }
+    }
+
+    static void matching(Harness harness, int[] sizes, double[] ratios) throws Exception {
+        for (int size : sizes) {
+            for (double ratio : ratios) {
+                Fleet fleet = new Fleet(size, ratio, RIDER_POOL, size);
+                String params = "drivers=" + size + ",available=" + ratio;
+                long scanOps = Math.max(20, SCAN_BUDGET / size);
+
+                runMatching(harness, "findDriver.nearestScan", params, scanOps, fleet, new NearestDriverStrategy());
+                runMatching(harness, "findDriver.soaScan", params, scanOps, fleet,
+                        new SoaNearestDriverStrategy(fleet.driverService));
+                runMatching(harness, "findDriver.gridNearest", params, 100_000, fleet,
+                        new GridNearestDriverStrategy(fleet.driverService));
+                runMatching(harness, "findDriver.leastActiveScan", params, scanOps, fleet, new LeastActiveDriverStrategy());
+                runMatching(harness, "findDriver.leastActiveHeap", params, 100_000, fleet,
+                        new LeastActiveDriverStrategy(fleet.driverService));
+                runCandidates(harness, "findCandidates.nearestScan", params, scanOps, fleet, new NearestDriverStrategy());
+                runCandidates(harness, "findCandidates.gridNearest", params, 100_000, fleet,
+                        new GridNearestDriverStrategy(fleet.driverService));
+                runCandidates(harness, "findCandidates.leastActiveHeap", params, 100_000, fleet,
+                        new LeastActiveDriverStrategy(fleet.driverService));
+            }
+        }
+    }
+
+    private static void runMatching(Harness harness, String name, String params, long ops,
+                                    Fleet fleet, RideMatchingStrategy strategy) throws Exception {
+        harness.measure(name, params, 1, ops, (thread, iteration) -> {
+            Driver driver = strategy.findDriver(fleet.rider(iteration), VehicleType.CAR,
+                    fleet.driverService.getAvailableDrivers(VehicleType.CAR));
+            return driver.getRidesCompleted();
+        });
+    }
+
+    private static void runCandidates(Harness harness, String name, String params, long ops,
+                                      Fleet fleet, RideMatchingStrategy strategy) throws Exception {
+        harness.measure(name, params + ",k=" + CANDIDATES, 1, ops, (thread, iteration) ->
+                strategy.findCandidates(fleet.rider(iteration), VehicleType.CAR,
+                        fleet.driverService.getAvailableDrivers(VehicleType.CAR), CANDIDATES).size());
+    }
+
+    static void fare(Harness harness) throws Exception {
+        Random random = new Random(42);
+        VehicleType[] types = VehicleType.values();
+        Rider rider = new Rider("BENCH", "rider", "bench", 0, 0);
+        Ride[] rides = new Ride[1024];
+        for (int i = 0; i < rides.length; i++) {
+            rides[i] = new Ride("RIDE" + i, rider, 1 + random.nextDouble() * 30, types[i % types.length]);
+        }
+        FareStrategy[] strategies = { new DefaultFareStrategy(), new PeakHourFareStrategy() };
+        for (FareStrategy strategy : strategies) {
+            harness.measure("calculateFare", strategy.getClass().getSimpleName(), 1, 5_000_000,
+                    (thread, iteration) -> strategy.calculateFare(rides[(int) (iteration & 1023)]));
+        }
+        FareQuoteService quotes = new FareQuoteService(new DefaultFareStrategy());
+        harness.measure("fareQuote", "DefaultFareStrategy", 1, 5_000_000, (thread, iteration) -> {
+            Ride ride = rides[(int) (iteration & 1023)];
+            return quotes.quote(ride.getVehicleType(), ride.getDistance(), 0);
+        });
+    }
+
+    static void ids(Harness harness) throws Exception {
+        SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator(1);
+        for (int threads : new int[] { 1, 4, 8 }) {
+            harness.measure("ids.sequentialRideId", "", threads, 1_000_000,
+                    (thread, iteration) -> IdGenerator.generateRideId().length());
+            harness.measure("ids.snowflakeNextId", "", threads, 1_000_000,
+                    (thread, iteration) -> snowflake.nextId());
+            harness.measure("ids.snowflakeFormatted", "", threads, 1_000_000,
+                    (thread, iteration) -> SnowflakeIdGenerator.format(snowflake.nextId()).length());
+        }
+    }
+
+    // riders=1 sends every request from the same spot, so concurrent requests race for the same
+    // few drivers and losers fall through their candidate lists
+    static void cycle(Harness harness) throws Exception {
+        for (int riders : new int[] { RIDER_POOL, 1 }) {
+            for (int threads : new int[] { 1, 4 }) {
+                Fleet fleet = new Fleet(10_000, 1.0, riders, 7);
+                RideService rideService = new RideService(new GridNearestDriverStrategy(fleet.driverService),
+                        new DefaultFareStrategy(), fleet.driverService);
+                harness.measure("rideService.requestComplete", "drivers=10000,riders=" + riders + ",strategy=grid",
+                        threads, 200_000, (thread, iteration) -> {
+                            Ride ride = rideService.requestRide(fleet.rider(iteration * 31 + thread), 5.0, VehicleType.CAR);
+                            rideService.completeRide(ride.getId());
+                            return ride.getDriver().getRidesCompleted();
+                        });
+            }
+        }
+    }
+
+    static void zones(Harness harness) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int side : new int[] { 1, 2, 4 }) {
+            int threads = Math.min(cores, side * side * 2);
+            Fleet fleet = new Fleet(10_000, 1.0, RIDER_POOL, 7);
+            RideService rideService = new RideService(new GridNearestDriverStrategy(fleet.driverService),
+                    new DefaultFareStrategy(), fleet.driverService);
+            ZoneGrid zoneGrid = new ZoneGrid(Fleet.MIN_LATITUDE, Fleet.MIN_LONGITUDE,
+                    Fleet.MIN_LATITUDE + Fleet.SPAN_DEGREES, Fleet.MIN_LONGITUDE + Fleet.SPAN_DEGREES, side, side);
+            try (ZoneDispatcher dispatcher = new ZoneDispatcher(zoneGrid, rideService, fleet.driverService, 0.01)) {
+                harness.measure("zoneDispatcher.requestComplete", "drivers=10000,zones=" + side * side, threads,
+                        100_000, (thread, iteration) -> {
+                            Ride ride = dispatcher.requestRide(fleet.rider(iteration * 31 + thread), 5.0,
+                                    VehicleType.CAR, Duration.ofSeconds(5)).join();
+                            rideService.completeRide(ride.getId());
+                            return ride.getDriver().getRidesCompleted();
+                        });
+            }
+        }
+    }
+
+    // Driver lookups by string id through the old layout (a ConcurrentHashMap per service plus
+    // the store's id -> slot map) against the interned-handle layout. The build benchmarks
+    // insert one entity per op into fresh structures, so B/op is the heap cost per entity.
+    static void lookup(Harness harness) throws Exception {
+        int size = 1_000_000;
+        Fleet fleet = new Fleet(size, 1.0, 1, 11);
+        Driver[] drivers = fleet.driverService.getAllDrivers().toArray(new Driver[0]);
+        String[] ids = new String[size];
+        Map<String, Driver> byId = new ConcurrentHashMap<>();
+        for (int i = 0; i < size; i++) {
+            ids[i] = drivers[i].getId();
+            byId.put(ids[i], drivers[i]);
+        }
+        // Ids arriving at the edge are parsed from requests, never the map's own key instances
+        String[] queries = new String[size];
+        for (int i = 0; i < size; i++) {
+            queries[i] = new String(ids[i]);
+        }
+        String params = "entities=" + size;
+        // A large odd stride visits every entity in an order the prefetcher cannot follow
+        harness.measure("lookup.stringMap", params, 1, 5_000_000,
+                (thread, iteration) -> byId.get(queries[(int) (iteration * 7_919 % size)]).getRidesCompleted());
+        harness.measure("lookup.driverById", params, 1, 5_000_000, (thread, iteration) ->
+                fleet.driverService.getDriverById(queries[(int) (iteration * 7_919 % size)]).getRidesCompleted());
+        harness.measure("lookup.driverByHandle", params, 1, 5_000_000, (thread, iteration) ->
+                fleet.driverService.getDriverByHandle((int) (iteration * 7_919 % size)).getRidesCompleted());
+
+        Object[] built = new Object[2];
+        harness.measure("lookup.build.stringMaps", params, 1, size, (thread, iteration) -> {
+            if (iteration == 0) {
+                built[0] = new ConcurrentHashMap<String, Driver>();
+                built[1] = new ConcurrentHashMap<String, Integer>();
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Driver> driversById = (Map<String, Driver>) built[0];
+            @SuppressWarnings("unchecked")
+            Map<String, Integer> slots = (Map<String, Integer>) built[1];
+            driversById.put(ids[(int) iteration], drivers[(int) iteration]);
+            slots.put(ids[(int) iteration], (int) iteration);
+            return slots.size();
+        });
+        harness.measure("lookup.build.handleMaps", params, 1, size, (thread, iteration) -> {
+            if (iteration == 0) {
+                built[0] = new IdInterner();
+                built[1] = new IntObjectMap<Driver>();
+            }
+            @SuppressWarnings("unchecked")
+            IntObjectMap<Driver> driversByHandle = (IntObjectMap<Driver>) built[1];
+            int handle = ((IdInterner) built[0]).intern(ids[(int) iteration]);
+            driversByHandle.put(handle, drivers[(int) iteration]);
+            return handle;
+        });
+    }
+
+    // Road ETAs on synthetic street grids. The graph is compiled once per size outside the
+    // measurement. The matching runs rank the K nearest drivers by road, with K point-to-point
+    // queries against one one-to-many search, next to the straight-line pick.
+    static void eta(Harness harness) throws Exception {
+        Path directory = Files.createTempDirectory("ridewise-roads");
+        try {
+            for (int side : new int[] { 100, 300 }) {
+                Path edgeList = directory.resolve("roads-" + side + ".csv");
+                Path graphFile = directory.resolve("roads-" + side + ".rwg");
+                SyntheticRoads.write(edgeList, side, 4, side);
+                RoadGraphBuilder.build(edgeList, graphFile);
+                RoadGraph graph = RoadGraph.open(graphFile);
+                EtaService etaService = new EtaService(graph);
+                String params = "nodes=" + graph.nodeCount();
+                Random random = new Random(side);
+                int[] pairs = new int[2 * 4096];
+                for (int i = 0; i < pairs.length; i++) {
+                    pairs[i] = random.nextInt(graph.nodeCount());
+                }
+                harness.measure("eta.pointToPoint", params, 1, 50_000, (thread, iteration) -> {
+                    int pair = (int) (iteration & 4095);
+                    return etaService.etaMillis(pairs[2 * pair], pairs[2 * pair + 1]);
+                });
+
+                Fleet fleet = new Fleet(10_000, 1.0, RIDER_POOL, 7);
+                runMatching(harness, "findDriver.gridNearest", params + ",drivers=10000", 50_000, fleet,
+                        new GridNearestDriverStrategy(fleet.driverService));
+                for (int k : new int[] { 8, 32 }) {
+                    runMatching(harness, "findDriver.etaRanked", params + ",drivers=10000,k=" + k, 20_000, fleet,
+                            new EtaRankedDriverStrategy(fleet.driverService, etaService, k));
+                    runMatching(harness, "findDriver.etaOneToMany", params + ",drivers=10000,k=" + k, 20_000, fleet,
+                            new OneToManyEtaDriverStrategy(fleet.driverService, etaService, k, ETA_CUTOFF_MILLIS));
+                }
+                Files.delete(edgeList);
+                Files.delete(graphFile);
+            }
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.airtribe.ridewise.bench;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.service.DriverService;
+import com.airtribe.ridewise.service.RiderService;
+import java.util.Random;
+
+// Synthetic city: drivers and riders spread uniformly over a ~30 km square
+public class Fleet {
+    static final double MIN_LATITUDE = 12.80;
+    static final double MIN_LONGITUDE = 77.45;
+    static final double SPAN_DEGREES = 0.27;
+
+    final DriverService driverService = new DriverService();
+    final RiderService riderService = new RiderService();
+    final Rider[] riders;
+
+    Fleet(int drivers, double availableRatio, int riderCount, long seed) {
+        this(drivers, availableRatio, riderCount, seed, VehicleType.CAR);
+    }
+
+    Fleet(int drivers, double availableRatio, int riderCount, long seed, VehicleType vehicleType) {
+        Random random = new Random(seed);
+        for (int i = 0; i < drivers; i++) {
+            Driver driver = driverService.registerDriver("driver" + i, "bench",
+                    randomLatitude(random), randomLongitude(random), vehicleType);
+            if (random.nextDouble() >= availableRatio) {
+                driverService.updateAvailability(driver.getId(), false);
+            }
+        }
+        riders = new Rider[riderCount];
+        for (int i = 0; i < riderCount; i++) {
+            riders[i] = riderService.registerRider("rider" + i, "bench", randomLatitude(random), randomLongitude(random));
+        }
+    }
+
+    Rider rider(long iteration) {
+        return riders[(int) (iteration % riders.length)];
+    }
+
+    static double randomLatitude(Random random) {
+        return MIN_LATITUDE + random.nextDouble() * SPAN_DEGREES;
+    }
+
+    static double randomLongitude(Random random) {
+        return MIN_LONGITUDE + random.nextDouble() * SPAN_DEGREES;
+    }
+}
@@ -0,0 +1,175 @@
+package com.airtribe.ridewise.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+// Minimal JMH-style harness: warmup and measurement iterations, a sink the JIT cannot
+// eliminate, and per-thread allocation counters from the HotSpot ThreadMXBean.
+public class Harness {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final boolean csv;
+    private final List<Result> results = new ArrayList<>();
+    private volatile long sink;
+
+    public Harness(int warmupIterations, int measurementIterations, boolean csv) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.csv = csv;
+        if (THREADS.isThreadAllocatedMemorySupported()) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    public interface Operation {
+        // Runs one operation and returns a value that is folded into the sink
+        long run(int threadIndex, long iteration) throws Exception;
+    }
+
+    public void consume(long value) {
+        sink += value;
+    }
+
+    public Result measure(String benchmark, String params, int threads, long opsPerThread, Operation operation)
+            throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(threads, opsPerThread, operation);
+        }
+        long totalNanos = 0;
+        long totalOps = 0;
+        long totalAllocated = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] iteration = runIteration(threads, opsPerThread, operation);
+            totalNanos += iteration[0];
+            totalAllocated += iteration[1];
+            totalOps += threads * opsPerThread;
+        }
+        Result result = new Result(benchmark, params, threads, totalOps, totalNanos, totalAllocated);
+        results.add(result);
+        System.out.println(csv ? result.toCsv() : result.toString());
+        return result;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    // Returns {elapsed nanos, bytes allocated by the worker threads}
+    private long[] runIteration(int threads, long opsPerThread, Operation operation) throws Exception {
+        if (threads == 1) {
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+            long started = System.nanoTime();
+            long local = 0;
+            for (long op = 0; op < opsPerThread; op++) {
+                local += operation.run(0, op);
+            }
+            long elapsed = System.nanoTime() - started;
+            long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            consume(local);
+            return new long[] { elapsed, allocated };
+        }
+
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        CyclicBarrier end = new CyclicBarrier(threads + 1);
+        long[] allocated = new long[threads];
+        Exception[] failure = new Exception[1];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int threadIndex = t;
+            Thread worker = new Thread(() -> {
+                long local = 0;
+                try {
+                    start.await();
+                    long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+                    for (long op = 0; op < opsPerThread; op++) {
+                        local += operation.run(threadIndex, op);
+                    }
+                    allocated[threadIndex] = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+                } catch (Exception e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                } finally {
+                    consume(local);
+                    try {
+                        end.await();
+                    } catch (Exception ignored) {
+                        // Main thread is already tearing down
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.await();
+        long started = System.nanoTime();
+        end.await();
+        long elapsed = System.nanoTime() - started;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        long totalAllocated = 0;
+        for (long bytes : allocated) {
+            totalAllocated += bytes;
+        }
+        return new long[] { elapsed, totalAllocated };
+    }
+
+    public static class Result {
+        private final String benchmark;
+        private final String params;
+        private final int threads;
+        private final long operations;
+        private final long nanos;
+        private final long allocatedBytes;
+
+        private Result(String benchmark, String params, int threads, long operations, long nanos, long allocatedBytes) {
+            this.benchmark = benchmark;
+            this.params = params;
+            this.threads = threads;
+            this.operations = operations;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public double opsPerSecond() {
+            return operations * 1e9 / nanos;
+        }
+
+        public double nanosPerOp() {
+            return (double) nanos * threads / operations;
+        }
+
+        public double bytesPerOp() {
+            return (double) allocatedBytes / operations;
+        }
+
+        public double allocationMbPerSecond() {
+            return allocatedBytes / 1048576.0 / (nanos / 1e9);
+        }
+
+        public static String csvHeader() {
+            return "benchmark,params,threads,ops_per_s,ns_per_op,bytes_per_op,alloc_mb_per_s";
+        }
+
+        public String toCsv() {
+            return String.format("%s,%s,%d,%.1f,%.1f,%.1f,%.1f",
+                    benchmark, params, threads, opsPerSecond(), nanosPerOp(), bytesPerOp(), allocationMbPerSecond());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %-34s threads=%-3d %14.1f ops/s %12.1f ns/op %10.1f B/op %10.1f MB/s alloc",
+                    benchmark, params, threads, opsPerSecond(), nanosPerOp(), bytesPerOp(), allocationMbPerSecond());
+        }
+    }
+}
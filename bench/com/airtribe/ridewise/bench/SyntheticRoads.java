@@ -0,0 +1,48 @@
+package com.airtribe.ridewise.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Street grid over the Fleet square with mixed speeds, a few fast arterials, and a river along
+// the middle row that only a handful of bridges cross. Written as a RoadGraphBuilder edge list.
+public class SyntheticRoads {
+    private SyntheticRoads() {
+    }
+
+    static void write(Path edgeList, int side, int bridges, long seed) throws IOException {
+        Random random = new Random(seed);
+        double step = Fleet.SPAN_DEGREES / (side - 1);
+        double meters = step * 111_195;
+        int river = side / 2;
+        try (BufferedWriter writer = Files.newBufferedWriter(edgeList, StandardCharsets.UTF_8)) {
+            for (int row = 0; row < side; row++) {
+                for (int col = 0; col < side; col++) {
+                    writer.write("node," + (row * side + col) + "," + (Fleet.MIN_LATITUDE + row * step) + ","
+                            + (Fleet.MIN_LONGITUDE + col * step) + "\n");
+                }
+            }
+            for (int row = 0; row < side; row++) {
+                for (int col = 0; col < side; col++) {
+                    int node = row * side + col;
+                    if (col + 1 < side) {
+                        writer.write("edge," + node + "," + (node + 1) + "," + meters + "," + speed(random, row) + "\n");
+                    }
+                    boolean crossesRiver = row == river;
+                    boolean bridge = crossesRiver && col % Math.max(1, side / bridges) == side / (2 * bridges);
+                    if (row + 1 < side && (!crossesRiver || bridge)) {
+                        writer.write("edge," + node + "," + (node + side) + "," + meters + "," + speed(random, col) + "\n");
+                    }
+                }
+            }
+        }
+    }
+
+    // Every tenth street is an arterial
+    private static int speed(Random random, int line) {
+        return line % 10 == 0 ? 60 : 15 + random.nextInt(25);
+    }
+}
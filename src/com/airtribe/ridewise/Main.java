@@ -4,6 +4,7 @@ import com.airtribe.ridewise.model.*;
 import com.airtribe.ridewise.service.*;
 import com.airtribe.ridewise.strategy.*;
 import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import com.airtribe.ridewise.util.LocationParser;
 import java.util.Scanner;
 
 public class Main {
@@ -99,7 +100,12 @@ public class Main {
             return;
         }
         
-        Rider rider = riderService.registerRider(name, location);
+        double[] coordinates = readCoordinates();
+        if (coordinates == null) {
+            return;
+        }
+        
+        Rider rider = riderService.registerRider(name, location, coordinates[0], coordinates[1]);
         System.out.println("Rider registered successfully!");
         System.out.println(rider + "\n");
     }
@@ -117,11 +123,54 @@ public class Main {
             return;
         }
         
-        Driver driver = driverService.registerDriver(name, location);
+        double[] coordinates = readCoordinates();
+        if (coordinates == null) {
+            return;
+        }
+        
+        VehicleType vehicleType;
+        try {
+            vehicleType = readVehicleType();
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Invalid input format!\n");
+            return;
+        }
+        
+        Driver driver = driverService.registerDriver(name, location, coordinates[0], coordinates[1], vehicleType);
         System.out.println("Driver registered successfully!");
         System.out.println(driver + "\n");
     }
 
+    private static VehicleType readVehicleType() {
+        System.out.println("\nSelect Vehicle Type:");
+        System.out.println("1. BIKE");
+        System.out.println("2. AUTO");
+        System.out.println("3. CAR");
+        System.out.print("Enter choice (1-3): ");
+        
+        int vehicleChoice = Integer.parseInt(scanner.nextLine().trim());
+        switch (vehicleChoice) {
+            case 1:
+                return VehicleType.BIKE;
+            case 2:
+                return VehicleType.AUTO;
+            case 3:
+                return VehicleType.CAR;
+            default:
+                System.out.println("Invalid choice! Defaulting to CAR.\n");
+                return VehicleType.CAR;
+        }
+    }
+
+    private static double[] readCoordinates() {
+        System.out.print("Enter coordinates (lat,lng): ");
+        double[] coordinates = LocationParser.parse(scanner.nextLine().trim());
+        if (coordinates == null) {
+            System.out.println("Error: Coordinates must be in the form lat,lng!\n");
+        }
+        return coordinates;
+    }
+
     private static void viewAvailableDrivers() {
         System.out.println("\n--- Available Drivers ---");
         var drivers = driverService.getAvailableDrivers();
@@ -170,30 +219,7 @@ public class Main {
                 return;
             }
             
-            // Select vehicle type
-            System.out.println("\nSelect Vehicle Type:");
-            System.out.println("1. BIKE");
-            System.out.println("2. AUTO");
-            System.out.println("3. CAR");
-            System.out.print("Enter choice (1-3): ");
-            
-            int vehicleChoice = Integer.parseInt(scanner.nextLine().trim());
-            VehicleType vehicleType;
-            
-            switch (vehicleChoice) {
-                case 1:
-                    vehicleType = VehicleType.BIKE;
-                    break;
-                case 2:
-                    vehicleType = VehicleType.AUTO;
-                    break;
-                case 3:
-                    vehicleType = VehicleType.CAR;
-                    break;
-                default:
-                    System.out.println("Invalid choice! Defaulting to CAR.\n");
-                    vehicleType = VehicleType.CAR;
-            }
+            VehicleType vehicleType = readVehicleType();
             
             Ride ride = rideService.requestRide(rider, distance, vehicleType);
             System.out.println("\nRide requested successfully!");
@@ -0,0 +1,296 @@
+package com.airtribe.ridewise.index;
+
+import com.airtribe.ridewise.util.LongHeap;
+import java.util.Arrays;
+
+// Contraction hierarchy preprocessing for RoadGraphBuilder. Nodes are removed one at a time,
+// least important first, where importance is the classic edge difference (shortcuts the
+// removal would add minus arcs it removes), plus neighbours already removed and the node's
+// depth in the hierarchy so far; both spread contraction evenly over the map and keep the
+// hierarchy shallow. Removing a node adds a shortcut for every in/out pair
+// whose shortest path ran through it, unless a bounded witness search finds a path around it
+// that is no longer; a search that hits its bound just adds a shortcut that is not strictly
+// needed, so the bound trades size for build time and never correctness.
+//
+// The result is, per node, its arcs to and from nodes removed after it. A query searches only
+// along those upward arcs from both ends and meets at the highest node of the shortest path.
+final class ContractionHierarchy {
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+    private static final int CONTRACTION_SETTLE_LIMIT = 500;
+    // Edge differences can be negative; the queue packs them as non-negative ints
+    private static final int PRIORITY_OFFSET = 1 << 24;
+
+    private final int nodes;
+    private final Adjacency out;
+    private final Adjacency in;
+    private final Adjacency upwardOut;
+    private final Adjacency upwardIn;
+    private final boolean[] contracted;
+    private final int[] removedNeighbours;
+    private final int[] depths;
+    private final int[] priorities;
+
+    private final int[] witnessDistance;
+    private final int[] witnessSeen;
+    private final LongHeap witnessHeap = new LongHeap();
+    private int witnessStamp;
+
+    // Shortcuts found while contracting a node, added only once all its witness searches ran:
+    // a shortcut stands for a path through the node and must not serve as a witness for it
+    private int[] pending = new int[48];
+    private int pendingCount;
+
+    ContractionHierarchy(int nodes, int[] tails, int[] heads, int[] millis) {
+        this.nodes = nodes;
+        this.out = new Adjacency(nodes);
+        this.in = new Adjacency(nodes);
+        this.upwardOut = new Adjacency(nodes);
+        this.upwardIn = new Adjacency(nodes);
+        this.contracted = new boolean[nodes];
+        this.removedNeighbours = new int[nodes];
+        this.depths = new int[nodes];
+        this.priorities = new int[nodes];
+        this.witnessDistance = new int[nodes];
+        this.witnessSeen = new int[nodes];
+        for (int arc = 0; arc < tails.length; arc++) {
+            if (tails[arc] != heads[arc]) {
+                out.addOrShorten(tails[arc], heads[arc], millis[arc]);
+                in.addOrShorten(heads[arc], tails[arc], millis[arc]);
+            }
+        }
+    }
+
+    void contractAll() {
+        LongHeap queue = new LongHeap(nodes);
+        for (int node = 0; node < nodes; node++) {
+            priorities[node] = priority(node);
+            queue.push(LongHeap.pack(priorities[node] + PRIORITY_OFFSET, node));
+        }
+        while (!queue.isEmpty()) {
+            long entry = queue.pop();
+            int node = LongHeap.nodeOf(entry);
+            if (contracted[node] || LongHeap.distanceOf(entry) - PRIORITY_OFFSET != priorities[node]) {
+                continue;
+            }
+            // Lazy update: priorities drift as the graph changes, so re-check before committing
+            int fresh = priority(node);
+            if (fresh != priorities[node]) {
+                priorities[node] = fresh;
+                if (!queue.isEmpty() && fresh + PRIORITY_OFFSET > LongHeap.distanceOf(queue.peek())) {
+                    queue.push(LongHeap.pack(fresh + PRIORITY_OFFSET, node));
+                    continue;
+                }
+            }
+            contract(node);
+            for (int i = 0; i < out.counts[node]; i++) {
+                touchNeighbour(node, out.targets[node][i]);
+            }
+            for (int i = 0; i < in.counts[node]; i++) {
+                touchNeighbour(node, in.targets[node][i]);
+            }
+        }
+    }
+
+    // [firstOut[nodes + 1], heads, millis] of the arcs from each node to higher nodes
+    int[][] upwardOut() {
+        return upwardOut.toCsr();
+    }
+
+    // [firstIn[nodes + 1], tails, millis] of the arcs into each node from higher nodes
+    int[][] upwardIn() {
+        return upwardIn.toCsr();
+    }
+
+    // Only the neighbour's counters change here; its priority is re-evaluated when it next
+    // reaches the top of the queue, which costs far fewer witness searches than eager updates
+    private void touchNeighbour(int node, int neighbour) {
+        if (contracted[neighbour]) {
+            return;
+        }
+        removedNeighbours[neighbour]++;
+        depths[neighbour] = Math.max(depths[neighbour], depths[node] + 1);
+        out.removeContracted(neighbour, contracted);
+        in.removeContracted(neighbour, contracted);
+    }
+
+    private int priority(int node) {
+        int shortcuts = shortcutsFor(node, SIMULATION_SETTLE_LIMIT, false);
+        int edgeDifference = shortcuts - liveDegree(out, node) - liveDegree(in, node);
+        return 2 * edgeDifference + removedNeighbours[node] + depths[node];
+    }
+
+    private void contract(int node) {
+        for (int i = 0; i < out.counts[node]; i++) {
+            if (!contracted[out.targets[node][i]]) {
+                upwardOut.append(node, out.targets[node][i], out.weights[node][i]);
+            }
+        }
+        for (int i = 0; i < in.counts[node]; i++) {
+            if (!contracted[in.targets[node][i]]) {
+                upwardIn.append(node, in.targets[node][i], in.weights[node][i]);
+            }
+        }
+        pendingCount = 0;
+        shortcutsFor(node, CONTRACTION_SETTLE_LIMIT, true);
+        for (int i = 0; i < pendingCount; i += 3) {
+            out.addOrShorten(pending[i], pending[i + 1], pending[i + 2]);
+            in.addOrShorten(pending[i + 1], pending[i], pending[i + 2]);
+        }
+        contracted[node] = true;
+    }
+
+    // Counts the shortcuts that removing node needs, queueing them in pending if asked to
+    private int shortcutsFor(int node, int settleLimit, boolean queue) {
+        int maxOut = 0;
+        for (int i = 0; i < out.counts[node]; i++) {
+            if (!contracted[out.targets[node][i]]) {
+                maxOut = Math.max(maxOut, out.weights[node][i]);
+            }
+        }
+        int shortcuts = 0;
+        for (int i = 0; i < in.counts[node]; i++) {
+            int from = in.targets[node][i];
+            if (contracted[from]) {
+                continue;
+            }
+            int toNode = in.weights[node][i];
+            witnessSearch(from, node, toNode + maxOut, settleLimit);
+            for (int j = 0; j < out.counts[node]; j++) {
+                int to = out.targets[node][j];
+                if (contracted[to] || to == from) {
+                    continue;
+                }
+                int via = toNode + out.weights[node][j];
+                if (witnessSeen[to] != witnessStamp || witnessDistance[to] > via) {
+                    shortcuts++;
+                    if (queue) {
+                        queueShortcut(from, to, via);
+                    }
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    private void queueShortcut(int from, int to, int millis) {
+        if (pendingCount + 3 > pending.length) {
+            pending = Arrays.copyOf(pending, pending.length * 2);
+        }
+        pending[pendingCount++] = from;
+        pending[pendingCount++] = to;
+        pending[pendingCount++] = millis;
+    }
+
+    // Dijkstra from source over the remaining graph without the node being removed, stopping
+    // past maxDistance or after settleLimit nodes
+    private void witnessSearch(int source, int excluded, int maxDistance, int settleLimit) {
+        if (++witnessStamp == 0) {
+            Arrays.fill(witnessSeen, 0);
+            witnessStamp = 1;
+        }
+        witnessHeap.clear();
+        witnessSeen[source] = witnessStamp;
+        witnessDistance[source] = 0;
+        witnessHeap.push(LongHeap.pack(0, source));
+        int settled = 0;
+        while (!witnessHeap.isEmpty()) {
+            long entry = witnessHeap.pop();
+            int node = LongHeap.nodeOf(entry);
+            int distance = LongHeap.distanceOf(entry);
+            if (distance != witnessDistance[node]) {
+                continue;
+            }
+            if (distance > maxDistance || ++settled > settleLimit) {
+                break;
+            }
+            for (int i = 0; i < out.counts[node]; i++) {
+                int next = out.targets[node][i];
+                if (next == excluded || contracted[next]) {
+                    continue;
+                }
+                int candidate = distance + out.weights[node][i];
+                if (witnessSeen[next] != witnessStamp || candidate < witnessDistance[next]) {
+                    witnessSeen[next] = witnessStamp;
+                    witnessDistance[next] = candidate;
+                    witnessHeap.push(LongHeap.pack(candidate, next));
+                }
+            }
+        }
+    }
+
+    private int liveDegree(Adjacency adjacency, int node) {
+        int live = 0;
+        for (int i = 0; i < adjacency.counts[node]; i++) {
+            if (!contracted[adjacency.targets[node][i]]) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    // Growable per-node lists of (target, weight)
+    private static final class Adjacency {
+        private final int[][] targets;
+        private final int[][] weights;
+        private final int[] counts;
+
+        private Adjacency(int nodes) {
+            targets = new int[nodes][];
+            weights = new int[nodes][];
+            counts = new int[nodes];
+        }
+
+        private void append(int node, int target, int weight) {
+            if (targets[node] == null) {
+                targets[node] = new int[4];
+                weights[node] = new int[4];
+            } else if (counts[node] == targets[node].length) {
+                targets[node] = Arrays.copyOf(targets[node], counts[node] * 2);
+                weights[node] = Arrays.copyOf(weights[node], counts[node] * 2);
+            }
+            targets[node][counts[node]] = target;
+            weights[node][counts[node]] = weight;
+            counts[node]++;
+        }
+
+        // Keeps only the shortest of parallel arcs
+        private void addOrShorten(int node, int target, int weight) {
+            for (int i = 0; i < counts[node]; i++) {
+                if (targets[node][i] == target) {
+                    weights[node][i] = Math.min(weights[node][i], weight);
+                    return;
+                }
+            }
+            append(node, target, weight);
+        }
+
+        private void removeContracted(int node, boolean[] contracted) {
+            int kept = 0;
+            for (int i = 0; i < counts[node]; i++) {
+                if (!contracted[targets[node][i]]) {
+                    targets[node][kept] = targets[node][i];
+                    weights[node][kept] = weights[node][i];
+                    kept++;
+                }
+            }
+            counts[node] = kept;
+        }
+
+        private int[][] toCsr() {
+            int nodes = counts.length;
+            int[] first = new int[nodes + 1];
+            for (int node = 0; node < nodes; node++) {
+                first[node + 1] = first[node] + counts[node];
+            }
+            int[] others = new int[first[nodes]];
+            int[] millis = new int[first[nodes]];
+            for (int node = 0; node < nodes; node++) {
+                if (counts[node] > 0) {
+                    System.arraycopy(targets[node], 0, others, first[node], counts[node]);
+                    System.arraycopy(weights[node], 0, millis, first[node], counts[node]);
+                }
+            }
+            return new int[][] { first, others, millis };
+        }
+    }
+}
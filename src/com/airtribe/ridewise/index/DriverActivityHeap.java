@@ -0,0 +1,213 @@
+package com.airtribe.ridewise.index;
+
+import com.airtribe.ridewise.model.Driver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Indexed binary min-heap ordered by rides completed, ties broken by driver id.
+// Operations hold the heap's monitor; drivers reserved elsewhere are dropped lazily on peek.
+// Heap positions are an array indexed by the driver's dense handle, -1 when not in the heap.
+public class DriverActivityHeap {
+    private static final int ABSENT = -1;
+
+    private Driver[] heap = new Driver[16];
+    private int[] keys = new int[16];
+    private int[] positions = new int[0];
+    private int size;
+
+    public synchronized void add(Driver driver) {
+        if (positionOf(driver) != ABSENT) {
+            update(driver);
+            return;
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        heap[size] = driver;
+        keys[size] = driver.getRidesCompleted();
+        setPosition(driver, size);
+        siftUp(size++);
+    }
+
+    public synchronized void remove(Driver driver) {
+        int position = positionOf(driver);
+        if (position == ABSENT) {
+            return;
+        }
+        positions[driver.getHandle()] = ABSENT;
+        int last = --size;
+        if (position != last) {
+            move(last, position);
+            heap[last] = null;
+            siftDown(siftUp(position));
+        } else {
+            heap[last] = null;
+        }
+    }
+
+    // Re-reads the driver's ride count after it changed
+    public synchronized void update(Driver driver) {
+        int position = positionOf(driver);
+        if (position == ABSENT) {
+            return;
+        }
+        keys[position] = driver.getRidesCompleted();
+        siftDown(siftUp(position));
+    }
+
+    public synchronized Driver peek() {
+        while (size > 0 && !heap[0].isAvailable()) {
+            remove(heap[0]);
+        }
+        return size > 0 ? heap[0] : null;
+    }
+
+    // The k least active available drivers, least active first, without removing any. Walks
+    // the heap best-first from the root, holding the frontier in a small heap of positions, so
+    // it touches O(k) entries rather than ordering the whole heap.
+    public synchronized List<Driver> peek(int k) {
+        List<Driver> result = new ArrayList<>(Math.max(0, Math.min(k, size)));
+        if (k <= 0 || size == 0) {
+            return result;
+        }
+        int[] frontier = new int[16];
+        int frontierSize = 1;
+        while (frontierSize > 0 && result.size() < k) {
+            int position = frontier[0];
+            frontier[0] = frontier[--frontierSize];
+            frontierSiftDown(frontier, frontierSize);
+            // Reserved drivers linger until peek() drops them; skip them but keep walking below
+            if (heap[position].isAvailable()) {
+                result.add(heap[position]);
+            }
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (frontierSize == frontier.length) {
+                    frontier = Arrays.copyOf(frontier, frontierSize * 2);
+                }
+                frontier[frontierSize] = child;
+                frontierSiftUp(frontier, frontierSize++);
+            }
+        }
+        return result;
+    }
+
+    public synchronized Driver poll() {
+        Driver top = peek();
+        if (top != null) {
+            remove(top);
+        }
+        return top;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!less(position, parent)) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+        return position;
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int left = 2 * position + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && less(right, left)) {
+                smallest = right;
+            }
+            if (!less(smallest, position)) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void frontierSiftUp(int[] frontier, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(frontier[index], frontier[parent])) {
+                return;
+            }
+            int position = frontier[index];
+            frontier[index] = frontier[parent];
+            frontier[parent] = position;
+            index = parent;
+        }
+    }
+
+    private void frontierSiftDown(int[] frontier, int frontierSize) {
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= frontierSize) {
+                return;
+            }
+            int smallest = left;
+            if (left + 1 < frontierSize && less(frontier[left + 1], frontier[left])) {
+                smallest = left + 1;
+            }
+            if (!less(frontier[smallest], frontier[index])) {
+                return;
+            }
+            int position = frontier[index];
+            frontier[index] = frontier[smallest];
+            frontier[smallest] = position;
+            index = smallest;
+        }
+    }
+
+    private boolean less(int a, int b) {
+        if (keys[a] != keys[b]) {
+            return keys[a] < keys[b];
+        }
+        return heap[a].getId().compareTo(heap[b].getId()) < 0;
+    }
+
+    private void swap(int a, int b) {
+        Driver driver = heap[a];
+        int key = keys[a];
+        move(b, a);
+        heap[b] = driver;
+        keys[b] = key;
+        setPosition(driver, b);
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        keys[to] = keys[from];
+        setPosition(heap[to], to);
+    }
+
+    private int positionOf(Driver driver) {
+        int handle = driver.getHandle();
+        return handle >= 0 && handle < positions.length ? positions[handle] : ABSENT;
+    }
+
+    private void setPosition(Driver driver, int position) {
+        int handle = driver.getHandle();
+        if (handle < 0) {
+            throw new IllegalArgumentException("Driver has no handle: " + driver.getId());
+        }
+        if (handle >= positions.length) {
+            int grown = Math.max(handle + 1, positions.length * 2);
+            int old = positions.length;
+            positions = Arrays.copyOf(positions, grown);
+            Arrays.fill(positions, old, grown, ABSENT);
+        }
+        positions[handle] = position;
+    }
+}
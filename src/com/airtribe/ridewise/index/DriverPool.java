@@ -0,0 +1,53 @@
+package com.airtribe.ridewise.index;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.util.IntObjectMap;
+import java.util.Collection;
+import java.util.Collections;
+
+// Available drivers of one vehicle type, with the spatial grid and activity heap over them,
+// all keyed by driver handle
+public class DriverPool {
+    private final IntObjectMap<Driver> available = new IntObjectMap<>();
+    private final Collection<Driver> availableView = Collections.unmodifiableCollection(available.values());
+    private final SpatialGridIndex spatialIndex;
+    private final DriverActivityHeap activityHeap = new DriverActivityHeap();
+
+    public DriverPool(double cellSize) {
+        this.spatialIndex = new SpatialGridIndex(cellSize);
+    }
+
+    public void add(Driver driver) {
+        available.put(driver.getHandle(), driver);
+        spatialIndex.put(driver);
+        activityHeap.add(driver);
+    }
+
+    public void remove(Driver driver) {
+        available.remove(driver.getHandle());
+        spatialIndex.remove(driver);
+        activityHeap.remove(driver);
+    }
+
+    public void relocate(Driver driver) {
+        if (available.get(driver.getHandle()) != null) {
+            spatialIndex.put(driver);
+        }
+    }
+
+    public Collection<Driver> getAvailableDrivers() {
+        return availableView;
+    }
+
+    public boolean isEmpty() {
+        return available.size() == 0;
+    }
+
+    public SpatialGridIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    public DriverActivityHeap getActivityHeap() {
+        return activityHeap;
+    }
+}
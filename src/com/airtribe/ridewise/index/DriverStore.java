@@ -0,0 +1,137 @@
+package com.airtribe.ridewise.index;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.VehicleType;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Structure-of-arrays copy of the fleet for brute-force scans. A driver's slot is its dense
+// handle from DriverService; coordinates, vehicle type and rides completed live in parallel
+// primitive arrays, and availability is one bitset per vehicle type. Slots are grouped into fixed-size pages that
+// never move once allocated, so per-slot writes need no lock; only adding a page does.
+// Scans read without locking and may see a write late, so callers still claim the returned
+// driver with its compare-and-set.
+public class DriverStore {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SLOTS = 1 << PAGE_BITS;
+    private static final int PAGE_WORDS = PAGE_SLOTS / 64;
+    private static final VehicleType[] TYPES = VehicleType.values();
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile Page[] pages = new Page[0];
+    private volatile int size;
+
+    // Adds or replaces the driver at its handle's slot
+    public synchronized int add(Driver driver) {
+        int slot = driver.getHandle();
+        if (slot < 0) {
+            throw new IllegalArgumentException("Driver has no handle: " + driver.getId());
+        }
+        if (slot >> PAGE_BITS >= pages.length) {
+            Page[] grown = new Page[(slot >> PAGE_BITS) + 1];
+            System.arraycopy(pages, 0, grown, 0, pages.length);
+            for (int i = pages.length; i < grown.length; i++) {
+                grown[i] = new Page();
+            }
+            pages = grown;
+        }
+        Page page = pages[slot >> PAGE_BITS];
+        int offset = slot & (PAGE_SLOTS - 1);
+        page.drivers[offset] = driver;
+        page.vehicleTypes[offset] = (byte) driver.getVehicleType().ordinal();
+        page.latitudes[offset] = driver.getLatitude();
+        page.longitudes[offset] = driver.getLongitude();
+        page.ridesCompleted[offset] = driver.getRidesCompleted();
+        if (slot >= size) {
+            size = slot + 1;
+        }
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void setAvailable(int slot, boolean available) {
+        Page page = pages[slot >> PAGE_BITS];
+        int offset = slot & (PAGE_SLOTS - 1);
+        long[] words = page.available[page.vehicleTypes[offset]];
+        long bit = 1L << offset;
+        if (available) {
+            WORDS.getAndBitwiseOr(words, offset >> 6, bit);
+        } else {
+            WORDS.getAndBitwiseAnd(words, offset >> 6, ~bit);
+        }
+    }
+
+    public void move(int slot, double latitude, double longitude) {
+        Page page = pages[slot >> PAGE_BITS];
+        int offset = slot & (PAGE_SLOTS - 1);
+        page.latitudes[offset] = latitude;
+        page.longitudes[offset] = longitude;
+    }
+
+    public void setRidesCompleted(int slot, int ridesCompleted) {
+        Page page = pages[slot >> PAGE_BITS];
+        page.ridesCompleted[slot & (PAGE_SLOTS - 1)] = ridesCompleted;
+    }
+
+    // Nearest available driver of the given type, or of any type when vehicleType is null.
+    // Empty 64-slot blocks are skipped on their availability word, and distances are computed
+    // only for the set bits, straight from the coordinate arrays, so a scan allocates nothing.
+    public Driver findNearest(double latitude, double longitude, VehicleType vehicleType) {
+        Page[] snapshot = pages;
+        int limit = size;
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        Driver best = null;
+        double bestDistance = Double.MAX_VALUE;
+
+        for (int pageIndex = 0; pageIndex < snapshot.length; pageIndex++) {
+            Page page = snapshot[pageIndex];
+            int pageLimit = Math.min(PAGE_SLOTS, limit - (pageIndex << PAGE_BITS));
+            for (int word = 0; word < PAGE_WORDS && word * 64 < pageLimit; word++) {
+                long bits = availableBits(page, word, vehicleType);
+                if (bits == 0) {
+                    continue;
+                }
+                int base = word * 64;
+                while (bits != 0) {
+                    int slot = base + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    // Squared distance in degrees^2, scaled like the equirectangular projection
+                    double x = (page.longitudes[slot] - longitude) * cosLatitude;
+                    double y = page.latitudes[slot] - latitude;
+                    double distance = x * x + y * y;
+                    if (distance < bestDistance) {
+                        Driver driver = page.drivers[slot];
+                        if (driver != null && driver.isAvailable()) {
+                            bestDistance = distance;
+                            best = driver;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static long availableBits(Page page, int word, VehicleType vehicleType) {
+        if (vehicleType != null) {
+            return (long) WORDS.getOpaque(page.available[vehicleType.ordinal()], word);
+        }
+        long bits = 0;
+        for (long[] words : page.available) {
+            bits |= (long) WORDS.getOpaque(words, word);
+        }
+        return bits;
+    }
+
+    private static final class Page {
+        private final double[] latitudes = new double[PAGE_SLOTS];
+        private final double[] longitudes = new double[PAGE_SLOTS];
+        private final byte[] vehicleTypes = new byte[PAGE_SLOTS];
+        private final int[] ridesCompleted = new int[PAGE_SLOTS];
+        private final Driver[] drivers = new Driver[PAGE_SLOTS];
+        private final long[][] available = new long[TYPES.length][PAGE_WORDS];
+    }
+}
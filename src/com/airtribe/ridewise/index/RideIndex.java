@@ -0,0 +1,95 @@
+package com.airtribe.ridewise.index;
+
+import com.airtribe.ridewise.model.Ride;
+import com.airtribe.ridewise.model.RideStatus;
+import com.airtribe.ridewise.util.IntObjectMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Secondary indexes over rides by rider handle, driver handle and status. Queries return live
+// read-only views; rider and driver never change once a ride is indexed, so only status moves.
+// A per-rider or per-driver set is never dropped once created, even when it empties, so a view
+// handed out earlier keeps seeing later rides; the sets are bounded by the number of riders and
+// drivers.
+public class RideIndex {
+    private final IntObjectMap<Set<Ride>> byRider = new IntObjectMap<>();
+    private final IntObjectMap<Set<Ride>> byDriver = new IntObjectMap<>();
+    private final Map<RideStatus, Set<Ride>> byStatus = new EnumMap<>(RideStatus.class);
+    private final Map<RideStatus, Collection<Ride>> byStatusViews = new EnumMap<>(RideStatus.class);
+
+    public RideIndex() {
+        for (RideStatus status : RideStatus.values()) {
+            Set<Ride> rides = ConcurrentHashMap.newKeySet();
+            byStatus.put(status, rides);
+            byStatusViews.put(status, Collections.unmodifiableSet(rides));
+        }
+    }
+
+    public void add(Ride ride) {
+        if (ride.getRider().getHandle() < 0) {
+            throw new IllegalArgumentException("Rider has no handle: " + ride.getRider().getId());
+        }
+        ridesOf(byRider, ride.getRider().getHandle()).add(ride);
+        if (ride.getDriver() != null) {
+            ridesOf(byDriver, ride.getDriver().getHandle()).add(ride);
+        }
+        byStatus.get(ride.getStatus()).add(ride);
+    }
+
+    // Caller holds the ride's lock, so transitions for one ride are applied in order
+    public void statusChanged(Ride ride, RideStatus previous) {
+        byStatus.get(ride.getStatus()).add(ride);
+        byStatus.get(previous).remove(ride);
+    }
+
+    public void remove(Ride ride) {
+        removeFrom(byRider, ride.getRider().getHandle(), ride);
+        if (ride.getDriver() != null) {
+            removeFrom(byDriver, ride.getDriver().getHandle(), ride);
+        }
+        byStatus.get(ride.getStatus()).remove(ride);
+    }
+
+    public Collection<Ride> getByRider(int riderHandle) {
+        return view(byRider, riderHandle);
+    }
+
+    public Collection<Ride> getByDriver(int driverHandle) {
+        return view(byDriver, driverHandle);
+    }
+
+    public Collection<Ride> getByStatus(RideStatus status) {
+        return byStatusViews.get(status);
+    }
+
+    // Sets are only ever added, so whichever set wins putIfAbsent is the one every caller uses
+    private static Set<Ride> ridesOf(IntObjectMap<Set<Ride>> index, int handle) {
+        Set<Ride> rides = index.get(handle);
+        if (rides == null) {
+            Set<Ride> created = ConcurrentHashMap.newKeySet();
+            rides = index.putIfAbsent(handle, created);
+            if (rides == null) {
+                rides = created;
+            }
+        }
+        return rides;
+    }
+
+    private static void removeFrom(IntObjectMap<Set<Ride>> index, int handle, Ride ride) {
+        Set<Ride> rides = handle >= 0 ? index.get(handle) : null;
+        if (rides != null) {
+            rides.remove(ride);
+        }
+    }
+
+    private static Collection<Ride> view(IntObjectMap<Set<Ride>> index, int handle) {
+        if (handle < 0) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(ridesOf(index, handle));
+    }
+}
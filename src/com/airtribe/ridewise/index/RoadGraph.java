@@ -0,0 +1,253 @@
+package com.airtribe.ridewise.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only road network in compressed sparse row form, memory-mapped from a file written by
+// RoadGraphBuilder. Opening only maps the file, so startup cost does not grow with the graph.
+// Arcs are directed with travel times in milliseconds; both the outgoing and the incoming arc
+// lists are stored so that searches can run in either direction. The upward arcs are the
+// contraction hierarchy: for each node, its arcs and shortcuts to and from nodes contracted
+// after it. Nodes are numbered in grid cell order, which keeps nearby nodes close in memory
+// and lets nearestNode look up a cell's nodes as one contiguous range.
+//
+// File layout (big-endian):
+//   header: [int magic][int nodes][int arcs][int upwardOutArcs][int upwardInArcs]
+//           [int gridRows][int gridCols][int unused]
+//           [double minLatitude][double minLongitude][double cellDegrees]
+//           [double metersPerUnitX][double metersPerUnitY]
+//   int sections: latitude[nodes], longitude[nodes] (both in 1e-7 degrees),
+//           firstOut[nodes + 1], outHead[arcs], outMillis[arcs],
+//           firstIn[nodes + 1], inTail[arcs], inMillis[arcs],
+//           upwardFirstOut[nodes + 1], upwardHead[upwardOutArcs], upwardOutMillis[upwardOutArcs],
+//           upwardFirstIn[nodes + 1], upwardTail[upwardInArcs], upwardInMillis[upwardInArcs],
+//           cellStart[cells + 1]
+public class RoadGraph {
+    // "RWG1"
+    static final int MAGIC = 0x52574731;
+    static final int HEADER_BYTES = 8 * 4 + 5 * 8;
+    static final double UNITS_PER_DEGREE = 1e7;
+
+    private final int nodeCount;
+    private final int arcCount;
+    private final int gridRows;
+    private final int gridCols;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double cellDegrees;
+    private final double metersPerUnitX;
+    private final double metersPerUnitY;
+    private final IntBuffer latitudes;
+    private final IntBuffer longitudes;
+    private final IntBuffer firstOut;
+    private final IntBuffer outHead;
+    private final IntBuffer outMillis;
+    private final IntBuffer firstIn;
+    private final IntBuffer inTail;
+    private final IntBuffer inMillis;
+    private final IntBuffer upwardFirstOut;
+    private final IntBuffer upwardHead;
+    private final IntBuffer upwardOutMillis;
+    private final IntBuffer upwardFirstIn;
+    private final IntBuffer upwardTail;
+    private final IntBuffer upwardInMillis;
+    private final IntBuffer cellStart;
+
+    private RoadGraph(FileChannel channel) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a road graph file");
+        }
+        nodeCount = header.getInt();
+        arcCount = header.getInt();
+        int upwardOutArcs = header.getInt();
+        int upwardInArcs = header.getInt();
+        gridRows = header.getInt();
+        gridCols = header.getInt();
+        header.getInt();
+        minLatitude = header.getDouble();
+        minLongitude = header.getDouble();
+        cellDegrees = header.getDouble();
+        metersPerUnitX = header.getDouble();
+        metersPerUnitY = header.getDouble();
+
+        long[] position = { HEADER_BYTES };
+        latitudes = section(channel, position, nodeCount);
+        longitudes = section(channel, position, nodeCount);
+        firstOut = section(channel, position, nodeCount + 1);
+        outHead = section(channel, position, arcCount);
+        outMillis = section(channel, position, arcCount);
+        firstIn = section(channel, position, nodeCount + 1);
+        inTail = section(channel, position, arcCount);
+        inMillis = section(channel, position, arcCount);
+        upwardFirstOut = section(channel, position, nodeCount + 1);
+        upwardHead = section(channel, position, upwardOutArcs);
+        upwardOutMillis = section(channel, position, upwardOutArcs);
+        upwardFirstIn = section(channel, position, nodeCount + 1);
+        upwardTail = section(channel, position, upwardInArcs);
+        upwardInMillis = section(channel, position, upwardInArcs);
+        cellStart = section(channel, position, gridRows * gridCols + 1);
+        if (position[0] != channel.size()) {
+            throw new IOException("Road graph file size does not match its header");
+        }
+    }
+
+    public static RoadGraph open(Path path) throws IOException {
+        // The mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new RoadGraph(channel);
+        }
+    }
+
+    // Each section is mapped on its own, so only a single section is limited to 2 GiB
+    private static IntBuffer section(FileChannel channel, long[] position, int ints) throws IOException {
+        long bytes = (long) ints * Integer.BYTES;
+        if (position[0] + bytes > channel.size()) {
+            throw new IOException("Road graph file is truncated");
+        }
+        IntBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, position[0], bytes).asIntBuffer();
+        position[0] += bytes;
+        return section;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int arcCount() {
+        return arcCount;
+    }
+
+    public double latitude(int node) {
+        return latitudes.get(node) / UNITS_PER_DEGREE;
+    }
+
+    public double longitude(int node) {
+        return longitudes.get(node) / UNITS_PER_DEGREE;
+    }
+
+    public int firstOut(int node) {
+        return firstOut.get(node);
+    }
+
+    public int outHead(int arc) {
+        return outHead.get(arc);
+    }
+
+    public int outMillis(int arc) {
+        return outMillis.get(arc);
+    }
+
+    public int firstIn(int node) {
+        return firstIn.get(node);
+    }
+
+    public int inTail(int arc) {
+        return inTail.get(arc);
+    }
+
+    public int inMillis(int arc) {
+        return inMillis.get(arc);
+    }
+
+    public int upwardFirstOut(int node) {
+        return upwardFirstOut.get(node);
+    }
+
+    public int upwardHead(int arc) {
+        return upwardHead.get(arc);
+    }
+
+    public int upwardOutMillis(int arc) {
+        return upwardOutMillis.get(arc);
+    }
+
+    public int upwardFirstIn(int node) {
+        return upwardFirstIn.get(node);
+    }
+
+    public int upwardTail(int arc) {
+        return upwardTail.get(arc);
+    }
+
+    public int upwardInMillis(int arc) {
+        return upwardInMillis.get(arc);
+    }
+
+    // Nearest node by straight line, or -1 for an empty graph. Searches grid rings outward from
+    // the query's cell and stops once every unsearched cell is farther than the best node found.
+    public int nearestNode(double latitude, double longitude) {
+        if (nodeCount == 0) {
+            return -1;
+        }
+        double queryX = longitude * UNITS_PER_DEGREE * metersPerUnitX;
+        double queryY = latitude * UNITS_PER_DEGREE * metersPerUnitY;
+        // Query position in cell widths from the grid origin; may lie outside the grid
+        double cellY = (latitude - minLatitude) / cellDegrees;
+        double cellX = (longitude - minLongitude) / cellDegrees;
+        int centerRow = clamp((int) Math.floor(cellY), gridRows);
+        int centerCol = clamp((int) Math.floor(cellX), gridCols);
+        double cellMetersY = cellDegrees * UNITS_PER_DEGREE * metersPerUnitY;
+        double cellMetersX = cellDegrees * UNITS_PER_DEGREE * metersPerUnitX;
+
+        int best = -1;
+        double bestSquared = Double.MAX_VALUE;
+        for (int ring = 0; ; ring++) {
+            if (ring > 0) {
+                // Rings below this one cover rows and columns center - ring + 1 .. center + ring - 1;
+                // every unsearched cell lies past one of that block's sides that is not the grid edge
+                double bound = Double.MAX_VALUE;
+                if (centerRow - ring + 1 > 0) {
+                    bound = Math.min(bound, (cellY - (centerRow - ring + 1)) * cellMetersY);
+                }
+                if (centerRow + ring - 1 < gridRows - 1) {
+                    bound = Math.min(bound, (centerRow + ring - cellY) * cellMetersY);
+                }
+                if (centerCol - ring + 1 > 0) {
+                    bound = Math.min(bound, (cellX - (centerCol - ring + 1)) * cellMetersX);
+                }
+                if (centerCol + ring - 1 < gridCols - 1) {
+                    bound = Math.min(bound, (centerCol + ring - cellX) * cellMetersX);
+                }
+                if (bound == Double.MAX_VALUE) {
+                    break;
+                }
+                bound = Math.max(0, bound);
+                if (best >= 0 && bound * bound >= bestSquared) {
+                    break;
+                }
+            }
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= gridRows) {
+                    continue;
+                }
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int col = centerCol - ring; col <= centerCol + ring; col += step) {
+                    if (col < 0 || col >= gridCols) {
+                        continue;
+                    }
+                    int cell = row * gridCols + col;
+                    for (int node = cellStart.get(cell); node < cellStart.get(cell + 1); node++) {
+                        double x = longitudes.get(node) * metersPerUnitX - queryX;
+                        double y = latitudes.get(node) * metersPerUnitY - queryY;
+                        double squared = x * x + y * y;
+                        if (squared < bestSquared) {
+                            bestSquared = squared;
+                            best = node;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(limit - 1, value));
+    }
+}
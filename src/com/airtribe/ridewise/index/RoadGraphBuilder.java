@@ -0,0 +1,262 @@
+package com.airtribe.ridewise.index;
+
+import com.airtribe.ridewise.util.GeoDistance;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Compiles a text edge list, such as one exported from OpenStreetMap, into the file that
+// RoadGraph maps, including its contraction hierarchy. This is the offline preprocessing step;
+// the service only opens the result.
+// Input lines, in any order, with '#' starting a comment:
+//   node,<id>,<latitude>,<longitude>
+//   edge,<from id>,<to id>,<length metres>,<speed km/h>[,oneway]
+// Edges are two-way unless the last field is 1, true or yes.
+public class RoadGraphBuilder {
+    private static final double DEFAULT_CELL_DEGREES = 0.005;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private RoadGraphBuilder() {
+    }
+
+    public static void build(Path edgeList, Path output) throws IOException {
+        build(edgeList, output, DEFAULT_CELL_DEGREES);
+    }
+
+    public static void build(Path edgeList, Path output, double cellDegrees) throws IOException {
+        if (cellDegrees <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        Map<Long, Integer> nodeIds = new HashMap<>();
+        IntList latitudes = new IntList();
+        IntList longitudes = new IntList();
+        LongList edgeEnds = new LongList();
+        IntList edgeMillis = new IntList();
+
+        try (BufferedReader reader = Files.newBufferedReader(edgeList, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                try {
+                    if (fields[0].equals("node") && fields.length == 4) {
+                        if (nodeIds.putIfAbsent(Long.parseLong(fields[1]), latitudes.size) != null) {
+                            throw new IOException("Duplicate node " + fields[1] + " on line " + lineNumber);
+                        }
+                        latitudes.add(toUnits(Double.parseDouble(fields[2])));
+                        longitudes.add(toUnits(Double.parseDouble(fields[3])));
+                    } else if (fields[0].equals("edge") && (fields.length == 5 || fields.length == 6)) {
+                        long from = Long.parseLong(fields[1]);
+                        long to = Long.parseLong(fields[2]);
+                        double meters = Double.parseDouble(fields[3]);
+                        double kmh = Double.parseDouble(fields[4]);
+                        if (meters < 0 || kmh <= 0) {
+                            throw new IOException("Invalid length or speed on line " + lineNumber);
+                        }
+                        int millis = (int) Math.max(1, Math.round(meters / (kmh / 3.6) * 1000));
+                        edgeEnds.add(from);
+                        edgeEnds.add(to);
+                        edgeMillis.add(millis);
+                        boolean oneway = fields.length == 6 && isTrue(fields[5].trim());
+                        if (!oneway) {
+                            edgeEnds.add(to);
+                            edgeEnds.add(from);
+                            edgeMillis.add(millis);
+                        }
+                    } else {
+                        throw new IOException("Unrecognised line " + lineNumber + ": " + line);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed number on line " + lineNumber + ": " + line, e);
+                }
+            }
+        }
+
+        int nodes = latitudes.size;
+        int arcs = edgeMillis.size;
+        int[] tails = new int[arcs];
+        int[] heads = new int[arcs];
+        for (int arc = 0; arc < arcs; arc++) {
+            tails[arc] = resolve(nodeIds, edgeEnds.values[2 * arc]);
+            heads[arc] = resolve(nodeIds, edgeEnds.values[2 * arc + 1]);
+        }
+
+        int minLat = Integer.MAX_VALUE;
+        int maxLat = Integer.MIN_VALUE;
+        int minLng = Integer.MAX_VALUE;
+        int maxLng = Integer.MIN_VALUE;
+        for (int node = 0; node < nodes; node++) {
+            minLat = Math.min(minLat, latitudes.values[node]);
+            maxLat = Math.max(maxLat, latitudes.values[node]);
+            minLng = Math.min(minLng, longitudes.values[node]);
+            maxLng = Math.max(maxLng, longitudes.values[node]);
+        }
+        if (nodes == 0) {
+            minLat = maxLat = minLng = maxLng = 0;
+        }
+        double minLatitude = minLat / RoadGraph.UNITS_PER_DEGREE;
+        double minLongitude = minLng / RoadGraph.UNITS_PER_DEGREE;
+        int rows = Math.max(1, (int) Math.ceil(((double) maxLat - minLat) / RoadGraph.UNITS_PER_DEGREE / cellDegrees));
+        int cols = Math.max(1, (int) Math.ceil(((double) maxLng - minLng) / RoadGraph.UNITS_PER_DEGREE / cellDegrees));
+        if ((long) rows * cols >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cell size too small for the graph's extent");
+        }
+
+        // Renumber nodes in cell order with a counting sort
+        int[] cellOf = new int[nodes];
+        int[] cellStart = new int[rows * cols + 1];
+        for (int node = 0; node < nodes; node++) {
+            double latitude = ((double) latitudes.values[node] - minLat) / RoadGraph.UNITS_PER_DEGREE;
+            double longitude = ((double) longitudes.values[node] - minLng) / RoadGraph.UNITS_PER_DEGREE;
+            int row = Math.min(rows - 1, (int) (latitude / cellDegrees));
+            int col = Math.min(cols - 1, (int) (longitude / cellDegrees));
+            cellOf[node] = row * cols + col;
+            cellStart[cellOf[node] + 1]++;
+        }
+        for (int cell = 0; cell < rows * cols; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] renumbered = new int[nodes];
+        int[] nextInCell = Arrays.copyOf(cellStart, cellStart.length - 1);
+        int[] sortedLatitudes = new int[nodes];
+        int[] sortedLongitudes = new int[nodes];
+        for (int node = 0; node < nodes; node++) {
+            int target = nextInCell[cellOf[node]]++;
+            renumbered[node] = target;
+            sortedLatitudes[target] = latitudes.values[node];
+            sortedLongitudes[target] = longitudes.values[node];
+        }
+        for (int arc = 0; arc < arcs; arc++) {
+            tails[arc] = renumbered[tails[arc]];
+            heads[arc] = renumbered[heads[arc]];
+        }
+
+        // Flat projection about the middle latitude, used to measure distances when snapping
+        double metersPerUnitY = GeoDistance.KM_PER_DEGREE * 1000 / RoadGraph.UNITS_PER_DEGREE;
+        double middleLatitude = ((double) minLat + maxLat) / 2.0 / RoadGraph.UNITS_PER_DEGREE;
+        double metersPerUnitX = metersPerUnitY * Math.cos(Math.toRadians(middleLatitude));
+
+        int[] firstOut = new int[nodes + 1];
+        int[] outHead = new int[arcs];
+        int[] outMillis = new int[arcs];
+        toCsr(tails, heads, edgeMillis.values, nodes, firstOut, outHead, outMillis);
+        int[] firstIn = new int[nodes + 1];
+        int[] inTail = new int[arcs];
+        int[] inMillis = new int[arcs];
+        toCsr(heads, tails, edgeMillis.values, nodes, firstIn, inTail, inMillis);
+
+        ContractionHierarchy hierarchy = new ContractionHierarchy(nodes, tails, heads,
+                Arrays.copyOf(edgeMillis.values, arcs));
+        hierarchy.contractAll();
+        int[][] upwardOut = hierarchy.upwardOut();
+        int[][] upwardIn = hierarchy.upwardIn();
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+            buffer.putInt(RoadGraph.MAGIC);
+            buffer.putInt(nodes);
+            buffer.putInt(arcs);
+            buffer.putInt(upwardOut[1].length);
+            buffer.putInt(upwardIn[1].length);
+            buffer.putInt(rows);
+            buffer.putInt(cols);
+            buffer.putInt(0);
+            buffer.putDouble(minLatitude);
+            buffer.putDouble(minLongitude);
+            buffer.putDouble(cellDegrees);
+            buffer.putDouble(metersPerUnitX);
+            buffer.putDouble(metersPerUnitY);
+            for (int[] section : new int[][] { sortedLatitudes, sortedLongitudes, firstOut, outHead, outMillis,
+                    firstIn, inTail, inMillis, upwardOut[0], upwardOut[1], upwardOut[2],
+                    upwardIn[0], upwardIn[1], upwardIn[2], cellStart }) {
+                for (int value : section) {
+                    if (!buffer.hasRemaining()) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putInt(value);
+                }
+            }
+            drain(channel, buffer);
+            channel.force(false);
+        }
+    }
+
+    // Groups arcs by their key node: first[node]..first[node + 1] index the node's arcs
+    private static void toCsr(int[] keys, int[] others, int[] millis, int nodes,
+                              int[] first, int[] otherOut, int[] millisOut) {
+        for (int key : keys) {
+            first[key + 1]++;
+        }
+        for (int node = 0; node < nodes; node++) {
+            first[node + 1] += first[node];
+        }
+        int[] next = Arrays.copyOf(first, nodes);
+        for (int arc = 0; arc < keys.length; arc++) {
+            int slot = next[keys[arc]]++;
+            otherOut[slot] = others[arc];
+            millisOut[slot] = millis[arc];
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int resolve(Map<Long, Integer> nodeIds, long id) throws IOException {
+        Integer node = nodeIds.get(id);
+        if (node == null) {
+            throw new IOException("Edge refers to unknown node " + id);
+        }
+        return node;
+    }
+
+    private static int toUnits(double degrees) {
+        return (int) Math.round(degrees * RoadGraph.UNITS_PER_DEGREE);
+    }
+
+    private static boolean isTrue(String value) {
+        return value.equals("1") || value.equalsIgnoreCase("true") || value.equalsIgnoreCase("yes");
+    }
+
+    private static final class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
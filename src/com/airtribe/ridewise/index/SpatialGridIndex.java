@@ -0,0 +1,344 @@
+package com.airtribe.ridewise.index;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.util.GeoDistance;
+import com.airtribe.ridewise.util.IntIntMap;
+import com.airtribe.ridewise.util.IntObjectMap;
+import com.airtribe.ridewise.util.LongObjectMap;
+import java.util.ArrayList;
+import java.util.List;
+
+// Uniform grid of available drivers keyed by driver handle. A cell's map is only written under
+// the cell's own lock, so it needs a single stripe. A cell that empties is retired and dropped
+// from the grid; a writer that finds a retired cell retries against a fresh one.
+public class SpatialGridIndex {
+    private final double cellSize;
+    private final LongObjectMap<Cell> cells = new LongObjectMap<>();
+    private final IntObjectMap<Entry> entries = new IntObjectMap<>();
+    // Occupied cells per column and per row, so the bounds can shrink when an edge cell empties
+    private final IntIntMap columnCells = new IntIntMap(0, 1);
+    private final IntIntMap rowCells = new IntIntMap(0, 1);
+    // Replaced whole under this index's lock, so a search never pairs edges from different states
+    private volatile Bounds bounds = Bounds.EMPTY;
+
+    public SpatialGridIndex(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellSize = cellSize;
+    }
+
+    public void put(Driver driver) {
+        remove(driver);
+        double latitude = driver.getLatitude();
+        double longitude = driver.getLongitude();
+        int cellX = cellX(longitude);
+        int cellY = cellY(latitude);
+        Entry entry = new Entry(driver, latitude, longitude, cellKey(cellX, cellY));
+        entries.put(driver.getHandle(), entry);
+        while (true) {
+            Cell cell = cells.get(entry.cell);
+            if (cell == null) {
+                Cell created = new Cell();
+                cell = cells.putIfAbsent(entry.cell, created);
+                if (cell == null) {
+                    cell = created;
+                }
+            }
+            synchronized (cell) {
+                if (!cell.retired) {
+                    if (cell.entries.size() == 0) {
+                        cellOpened(cellX, cellY);
+                    }
+                    cell.entries.put(driver.getHandle(), entry);
+                    return;
+                }
+            }
+        }
+    }
+
+    public void remove(Driver driver) {
+        int handle = driver.getHandle();
+        Entry entry = handle >= 0 ? entries.remove(handle) : null;
+        if (entry == null) {
+            return;
+        }
+        Cell cell = cells.get(entry.cell);
+        if (cell == null) {
+            return;
+        }
+        synchronized (cell) {
+            if (cell.entries.remove(handle) != null && cell.entries.size() == 0) {
+                cell.retired = true;
+                cells.remove(entry.cell);
+                cellClosed((int) (entry.cell >>> 32), (int) entry.cell);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Searches ring by ring outward from the query cell. Every cell in ring r lies at least
+    // ringLowerBound(r) away, so once that bound reaches the best distance seen, no outer
+    // ring can hold a nearer driver and the search stops.
+    public Driver findNearest(double latitude, double longitude) {
+        if (entries.size() == 0) {
+            return null;
+        }
+        int centerX = cellX(longitude);
+        int centerY = cellY(latitude);
+        double offsetX = longitude / cellSize - centerX;
+        double offsetY = latitude / cellSize - centerY;
+        int maxRing = bounds.maxRing(centerX, centerY);
+        if (maxRing < 0) {
+            return null;
+        }
+
+        Entry best = null;
+        double bestDistance = Double.MAX_VALUE;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (best != null) {
+                double bound = ringLowerBoundKm(ring, latitude, offsetX, offsetY);
+                if (bound * bound >= bestDistance) {
+                    break;
+                }
+            }
+            for (int x = centerX - ring; x <= centerX + ring; x++) {
+                boolean edgeColumn = x == centerX - ring || x == centerX + ring;
+                int step = edgeColumn ? 1 : 2 * ring;
+                for (int y = centerY - ring; y <= centerY + ring; y += step) {
+                    Cell cell = cells.get(cellKey(x, y));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Entry entry : cell.entries.values()) {
+                        if (!entry.driver.isAvailable()) {
+                            continue;
+                        }
+                        double distance = GeoDistance.squaredEquirectangularKm(
+                                latitude, longitude, entry.latitude, entry.longitude);
+                        if (distance < bestDistance
+                                || (distance == bestDistance && entry.driver.getId().compareTo(best.driver.getId()) < 0)) {
+                            bestDistance = distance;
+                            best = entry;
+                        }
+                    }
+                }
+            }
+        }
+
+        return best != null ? best.driver : null;
+    }
+
+    // Same ring search, keeping the k nearest in a small sorted buffer; stops once the ring
+    // bound reaches the k-th best distance. Results are ordered nearest first.
+    public List<Driver> findNearest(double latitude, double longitude, int k) {
+        List<Driver> result = new ArrayList<>(Math.max(0, Math.min(k, entries.size())));
+        if (k <= 0 || entries.size() == 0) {
+            return result;
+        }
+        int centerX = cellX(longitude);
+        int centerY = cellY(latitude);
+        double offsetX = longitude / cellSize - centerX;
+        double offsetY = latitude / cellSize - centerY;
+        int maxRing = bounds.maxRing(centerX, centerY);
+        if (maxRing < 0) {
+            return result;
+        }
+
+        Entry[] best = new Entry[k];
+        double[] bestDistances = new double[k];
+        int count = 0;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (count == k) {
+                double bound = ringLowerBoundKm(ring, latitude, offsetX, offsetY);
+                if (bound * bound >= bestDistances[k - 1]) {
+                    break;
+                }
+            }
+            for (int x = centerX - ring; x <= centerX + ring; x++) {
+                boolean edgeColumn = x == centerX - ring || x == centerX + ring;
+                int step = edgeColumn ? 1 : 2 * ring;
+                for (int y = centerY - ring; y <= centerY + ring; y += step) {
+                    Cell cell = cells.get(cellKey(x, y));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Entry entry : cell.entries.values()) {
+                        if (!entry.driver.isAvailable()) {
+                            continue;
+                        }
+                        double distance = GeoDistance.squaredEquirectangularKm(
+                                latitude, longitude, entry.latitude, entry.longitude);
+                        count = insertSorted(best, bestDistances, count, entry, distance);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            result.add(best[i].driver);
+        }
+        return result;
+    }
+
+    private static int insertSorted(Entry[] best, double[] distances, int count, Entry entry, double distance) {
+        int k = best.length;
+        int position = count;
+        while (position > 0 && closer(entry, distance, best[position - 1], distances[position - 1])) {
+            position--;
+        }
+        if (position >= k) {
+            return count;
+        }
+        int last = Math.min(count, k - 1);
+        System.arraycopy(best, position, best, position + 1, last - position);
+        System.arraycopy(distances, position, distances, position + 1, last - position);
+        best[position] = entry;
+        distances[position] = distance;
+        return Math.min(count + 1, k);
+    }
+
+    private static boolean closer(Entry entry, double distance, Entry other, double otherDistance) {
+        return distance < otherDistance
+                || (distance == otherDistance && entry.driver.getId().compareTo(other.driver.getId()) < 0);
+    }
+
+    private synchronized void cellOpened(int cellX, int cellY) {
+        columnCells.put(zigZag(cellX), columnCells.get(zigZag(cellX)) + 1);
+        rowCells.put(zigZag(cellY), rowCells.get(zigZag(cellY)) + 1);
+        Bounds current = bounds;
+        if (current.isEmpty()) {
+            bounds = new Bounds(cellX, cellX, cellY, cellY);
+        } else if (cellX < current.minX || cellX > current.maxX || cellY < current.minY || cellY > current.maxY) {
+            bounds = new Bounds(Math.min(current.minX, cellX), Math.max(current.maxX, cellX),
+                                Math.min(current.minY, cellY), Math.max(current.maxY, cellY));
+        }
+    }
+
+    // Walks an emptied edge inward to the next occupied column or row; an empty grid goes back
+    // to the empty bounds it started with
+    private synchronized void cellClosed(int cellX, int cellY) {
+        Bounds current = bounds;
+        int minX = current.minX;
+        int maxX = current.maxX;
+        int minY = current.minY;
+        int maxY = current.maxY;
+        if (decrement(columnCells, cellX) == 0) {
+            while (minX <= maxX && columnCells.get(zigZag(minX)) == 0) {
+                minX++;
+            }
+            while (maxX >= minX && columnCells.get(zigZag(maxX)) == 0) {
+                maxX--;
+            }
+        }
+        if (decrement(rowCells, cellY) == 0) {
+            while (minY <= maxY && rowCells.get(zigZag(minY)) == 0) {
+                minY++;
+            }
+            while (maxY >= minY && rowCells.get(zigZag(maxY)) == 0) {
+                maxY--;
+            }
+        }
+        if (minX > maxX || minY > maxY) {
+            bounds = Bounds.EMPTY;
+        } else if (minX != current.minX || maxX != current.maxX || minY != current.minY || maxY != current.maxY) {
+            bounds = new Bounds(minX, maxX, minY, maxY);
+        }
+    }
+
+    private static int decrement(IntIntMap counts, int cell) {
+        int remaining = counts.get(zigZag(cell)) - 1;
+        if (remaining == 0) {
+            counts.remove(zigZag(cell));
+        } else {
+            counts.put(zigZag(cell), remaining);
+        }
+        return remaining;
+    }
+
+    // Folds negative cell coordinates into the non-negative keys IntIntMap takes
+    private static int zigZag(int cell) {
+        return (cell << 1) ^ (cell >> 31);
+    }
+
+    // Longitude cells shrink with latitude, so the x bound uses the cosine at the most poleward
+    // latitude a candidate closer in y than this ring could have
+    private double ringLowerBoundKm(int ring, double latitude, double offsetX, double offsetY) {
+        if (ring == 0) {
+            return 0;
+        }
+        double boundX = Math.min(offsetX, 1 - offsetX) + (ring - 1);
+        double boundY = Math.min(offsetY, 1 - offsetY) + (ring - 1);
+        double extremeLatitude = Math.min(90.0, Math.abs(latitude) + (ring + 1) * cellSize);
+        double boundXKm = boundX * cellSize * GeoDistance.KM_PER_DEGREE * Math.cos(Math.toRadians(extremeLatitude));
+        double boundYKm = boundY * cellSize * GeoDistance.KM_PER_DEGREE;
+        return Math.min(boundXKm, boundYKm);
+    }
+
+    private int cellX(double longitude) {
+        return (int) Math.floor(longitude / cellSize);
+    }
+
+    private int cellY(double latitude) {
+        return (int) Math.floor(latitude / cellSize);
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+
+    private static final class Bounds {
+        private static final Bounds EMPTY = new Bounds(0, -1, 0, -1);
+
+        private final int minX;
+        private final int maxX;
+        private final int minY;
+        private final int maxY;
+
+        private Bounds(int minX, int maxX, int minY, int maxY) {
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        private boolean isEmpty() {
+            return minX > maxX;
+        }
+
+        // Rings needed from the query cell to cover every occupied cell, or -1 when none is.
+        // Worked in long and capped so the ring loop's ring + 1 cannot overflow.
+        private int maxRing(int centerX, int centerY) {
+            if (isEmpty()) {
+                return -1;
+            }
+            long ring = Math.max(Math.max((long) centerX - minX, (long) maxX - centerX),
+                                 Math.max((long) centerY - minY, (long) maxY - centerY));
+            return (int) Math.min(ring, Integer.MAX_VALUE - 1);
+        }
+    }
+
+    private static final class Cell {
+        private final IntObjectMap<Entry> entries = new IntObjectMap<>(1);
+        private boolean retired;
+    }
+
+    private static class Entry {
+        private final Driver driver;
+        private final double latitude;
+        private final double longitude;
+        private final long cell;
+
+        private Entry(Driver driver, double latitude, double longitude, long cell) {
+            this.driver = driver;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cell = cell;
+        }
+    }
+}
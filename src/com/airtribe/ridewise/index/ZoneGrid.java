@@ -0,0 +1,68 @@
+package com.airtribe.ridewise.index;
+
+import com.airtribe.ridewise.util.GeoDistance;
+import java.util.Arrays;
+
+// Splits a city's bounding box into rows x cols rectangular zones. Points outside the box
+// belong to the nearest edge zone.
+public class ZoneGrid {
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double zoneHeight;
+    private final double zoneWidth;
+    private final int rows;
+    private final int cols;
+
+    public ZoneGrid(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                    int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || maxLatitude <= minLatitude || maxLongitude <= minLongitude) {
+            throw new IllegalArgumentException("Zone grid needs a non-empty box and positive rows and cols");
+        }
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.zoneHeight = (maxLatitude - minLatitude) / rows;
+        this.zoneWidth = (maxLongitude - minLongitude) / cols;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public int zoneCount() {
+        return rows * cols;
+    }
+
+    public int zoneOf(double latitude, double longitude) {
+        int row = clamp((int) Math.floor((latitude - minLatitude) / zoneHeight), rows);
+        int col = clamp((int) Math.floor((longitude - minLongitude) / zoneWidth), cols);
+        return row * cols + col;
+    }
+
+    public int[] neighboursOf(int zone) {
+        int row = zone / cols;
+        int col = zone % cols;
+        int[] neighbours = new int[8];
+        int count = 0;
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if ((r != row || c != col) && r >= 0 && r < rows && c >= 0 && c < cols) {
+                    neighbours[count++] = r * cols + c;
+                }
+            }
+        }
+        return Arrays.copyOf(neighbours, count);
+    }
+
+    // Distance from a point to the nearest edge of a zone's rectangle; zero when inside it
+    public double distanceToZoneKm(int zone, double latitude, double longitude) {
+        int row = zone / cols;
+        int col = zone % cols;
+        double south = minLatitude + row * zoneHeight;
+        double west = minLongitude + col * zoneWidth;
+        double nearestLatitude = Math.max(south, Math.min(latitude, south + zoneHeight));
+        double nearestLongitude = Math.max(west, Math.min(longitude, west + zoneWidth));
+        return GeoDistance.equirectangularKm(latitude, longitude, nearestLatitude, nearestLongitude);
+    }
+
+    private static int clamp(int index, int size) {
+        return Math.max(0, Math.min(size - 1, index));
+    }
+}
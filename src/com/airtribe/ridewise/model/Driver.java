@@ -1,24 +1,42 @@
 package com.airtribe.ridewise.model;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Driver {
     private final String id;
+    // Dense internal key assigned by the owning service; -1 until registered
+    private int handle = -1;
     private String name;
-    private String currentLocation;
-    private boolean available;
-    private int ridesCompleted;
+    private volatile String currentLocation;
+    private volatile double latitude;
+    private volatile double longitude;
+    private final VehicleType vehicleType;
+    private final AtomicBoolean available = new AtomicBoolean(true);
+    private final AtomicInteger ridesCompleted = new AtomicInteger();
 
-    public Driver(String id, String name, String currentLocation) {
+    public Driver(String id, String name, String currentLocation, double latitude, double longitude,
+                  VehicleType vehicleType) {
         this.id = id;
         this.name = name;
         this.currentLocation = currentLocation;
-        this.available = true;
-        this.ridesCompleted = 0;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.vehicleType = vehicleType;
     }
 
     public String getId() {
         return id;
     }
 
+    public int getHandle() {
+        return handle;
+    }
+
+    public void setHandle(int handle) {
+        this.handle = handle;
+    }
+
     public String getName() {
         return name;
     }
@@ -31,25 +49,47 @@ public class Driver {
         this.currentLocation = location;
     }
 
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setCoordinates(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
     public boolean isAvailable() {
-        return available;
+        return available.get();
     }
 
     public void setAvailable(boolean available) {
-        this.available = available;
+        this.available.set(available);
+    }
+
+    // Atomically flips an available driver to busy; only one concurrent caller can win
+    public boolean tryReserve() {
+        return available.compareAndSet(true, false);
     }
 
     public int getRidesCompleted() {
-        return ridesCompleted;
+        return ridesCompleted.get();
     }
 
     public void incrementRidesCompleted() {
-        this.ridesCompleted++;
+        ridesCompleted.incrementAndGet();
     }
 
     @Override
     public String toString() {
         return "Driver{id='" + id + "', name='" + name + "', location='" + currentLocation + 
-               "', available=" + available + ", rides=" + ridesCompleted + "}";
+               "', vehicle=" + vehicleType + ", available=" + available.get() + ", rides=" + ridesCompleted.get() + "}";
     }
 }
\ No newline at end of file
@@ -1,24 +1,34 @@
 package com.airtribe.ridewise.model;
 
+import com.airtribe.ridewise.util.Money;
 import java.time.LocalDateTime;
 
 public class FareReceipt {
     private final String rideId;
-    private final double amount;
+    private final long amountMinorUnits;
     private final LocalDateTime generatedAt;
 
-    public FareReceipt(String rideId, double amount) {
+    public FareReceipt(String rideId, long amountMinorUnits) {
+        this(rideId, amountMinorUnits, LocalDateTime.now());
+    }
+
+    public FareReceipt(String rideId, long amountMinorUnits, LocalDateTime generatedAt) {
         this.rideId = rideId;
-        this.amount = amount;
-        this.generatedAt = LocalDateTime.now();
+        this.amountMinorUnits = amountMinorUnits;
+        this.generatedAt = generatedAt;
     }
 
     public String getRideId() {
         return rideId;
     }
 
+    public long getAmountMinorUnits() {
+        return amountMinorUnits;
+    }
+
+    // Display only; totals should be summed from getAmountMinorUnits
     public double getAmount() {
-        return amount;
+        return Money.toMajor(amountMinorUnits);
     }
 
     public LocalDateTime getGeneratedAt() {
@@ -27,7 +37,7 @@ public class FareReceipt {
 
     @Override
     public String toString() {
-        return "FareReceipt{rideId='" + rideId + "', amount=" + amount + 
+        return "FareReceipt{rideId='" + rideId + "', amount=" + Money.format(amountMinorUnits) + 
                ", generatedAt=" + generatedAt + "}";
     }
 }
\ No newline at end of file
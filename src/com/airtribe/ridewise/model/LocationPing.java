@@ -0,0 +1,41 @@
+package com.airtribe.ridewise.model;
+
+public class LocationPing {
+    private final String driverId;
+    private final double latitude;
+    private final double longitude;
+    private final long timestampMillis;
+
+    public LocationPing(String driverId, double latitude, double longitude, long timestampMillis) {
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public String getDriverId() {
+        return driverId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "LocationPing{" +
+                "driverId='" + driverId + '\'' +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", timestampMillis=" + timestampMillis +
+                '}';
+    }
+}
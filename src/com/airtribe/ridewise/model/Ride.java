@@ -2,18 +2,27 @@ package com.airtribe.ridewise.model;
 
 public class Ride {
     private final String id;
+    // Dense internal key assigned by the owning service; -1 until registered
+    private int handle = -1;
     private final Rider rider;
-    private Driver driver;
+    private volatile Driver driver;
     private final double distance;
-    private RideStatus status;
-    private FareReceipt fareReceipt;
+    private volatile RideStatus status;
+    private volatile FareReceipt fareReceipt;
     private final VehicleType vehicleType;
+    private final long requestedAtMillis;
+    private volatile long endedAtMillis;
 
     public Ride(String id, Rider rider, double distance, VehicleType vehicleType) {
+        this(id, rider, distance, vehicleType, System.currentTimeMillis());
+    }
+
+    public Ride(String id, Rider rider, double distance, VehicleType vehicleType, long requestedAtMillis) {
         this.id = id;
         this.rider = rider;
         this.distance = distance;
         this.vehicleType = vehicleType;
+        this.requestedAtMillis = requestedAtMillis;
         this.status = RideStatus.REQUESTED;
     }
 
@@ -21,6 +30,14 @@ public class Ride {
         return id;
     }
 
+    public int getHandle() {
+        return handle;
+    }
+
+    public void setHandle(int handle) {
+        this.handle = handle;
+    }
+
     public Rider getRider() {
         return rider;
     }
@@ -57,6 +74,19 @@ public class Ride {
         this.fareReceipt = fareReceipt;
     }
 
+    public long getRequestedAtMillis() {
+        return requestedAtMillis;
+    }
+
+    // Zero until the ride reaches COMPLETED or CANCELLED
+    public long getEndedAtMillis() {
+        return endedAtMillis;
+    }
+
+    public void setEndedAtMillis(long endedAtMillis) {
+        this.endedAtMillis = endedAtMillis;
+    }
+
     @Override
     public String toString() {
         return "Ride{id='" + id + "', rider=" + rider.getName() + 
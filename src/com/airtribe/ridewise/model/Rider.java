@@ -2,19 +2,33 @@ package com.airtribe.ridewise.model;
 
 public class Rider {
     private final String id;
+    // Dense internal key assigned by the owning service; -1 until registered
+    private int handle = -1;
     private String name;
     private String location;
+    private double latitude;
+    private double longitude;
 
-    public Rider(String id, String name, String location) {
+    public Rider(String id, String name, String location, double latitude, double longitude) {
         this.id = id;
         this.name = name;
         this.location = location;
+        this.latitude = latitude;
+        this.longitude = longitude;
     }
 
     public String getId() {
         return id;
     }
 
+    public int getHandle() {
+        return handle;
+    }
+
+    public void setHandle(int handle) {
+        this.handle = handle;
+    }
+
     public String getName() {
         return name;
     }
@@ -27,6 +41,19 @@ public class Rider {
         this.location = location;
     }
 
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setCoordinates(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
     @Override
     public String toString() {
         return "Rider{id='" + id + "', name='" + name + "', location='" + location + "'}";
@@ -0,0 +1,206 @@
+package com.airtribe.ridewise.persistence;
+
+import static com.airtribe.ridewise.persistence.ColumnarRideWriter.*;
+
+import com.airtribe.ridewise.model.VehicleType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Memory-maps a file written by ColumnarRideWriter. Each block is mapped on its own, so files
+// larger than one mapping are fine, and every aggregation touches only the columns it reads.
+// Revenue is summed exactly in minor currency units.
+public class ColumnarRideReader {
+    private final List<Block> blocks = new ArrayList<>();
+    private final long rowCount;
+
+    public ColumnarRideReader(Path path) throws IOException {
+        long rows = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (size - position >= BLOCK_HEADER_BYTES) {
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, position, BLOCK_HEADER_BYTES);
+                if (header.getInt() != BLOCK_MAGIC) {
+                    throw new IOException("Corrupt columnar block at offset " + position);
+                }
+                int blockRows = header.getInt();
+                long[] offsets = new long[COLUMNS];
+                long[] lengths = new long[COLUMNS];
+                long offset = position + BLOCK_HEADER_BYTES;
+                for (int column = 0; column < COLUMNS; column++) {
+                    offsets[column] = offset;
+                    lengths[column] = header.getLong();
+                    offset += lengths[column];
+                }
+                if (offset > size) {
+                    // A block cut short by a crash mid-write; everything before it is intact
+                    break;
+                }
+                blocks.add(new Block(channel.map(FileChannel.MapMode.READ_ONLY, position, offset - position),
+                        blockRows, offsets, lengths, position));
+                rows += blockRows;
+                position = offset;
+            }
+        }
+        this.rowCount = rows;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    // Reads the vehicle type and fare columns only
+    public Map<VehicleType, Long> revenueByVehicleType() {
+        long[] totals = new long[VehicleType.values().length];
+        for (Block block : blocks) {
+            VehicleType[] dictionary = block.vehicleDictionary();
+            ByteBuffer codes = block.vehicleCodes();
+            LongBuffer fares = block.column(FARE).asLongBuffer();
+            for (int row = 0; row < block.rows; row++) {
+                totals[dictionary[codes.get(row)].ordinal()] += fares.get(row);
+            }
+        }
+        Map<VehicleType, Long> revenue = new EnumMap<>(VehicleType.class);
+        for (VehicleType type : VehicleType.values()) {
+            revenue.put(type, totals[type.ordinal()]);
+        }
+        return revenue;
+    }
+
+    // Reads the vehicle type column only
+    public Map<VehicleType, Long> rideCountByVehicleType() {
+        long[] counts = new long[VehicleType.values().length];
+        for (Block block : blocks) {
+            VehicleType[] dictionary = block.vehicleDictionary();
+            ByteBuffer codes = block.vehicleCodes();
+            for (int row = 0; row < block.rows; row++) {
+                counts[dictionary[codes.get(row)].ordinal()]++;
+            }
+        }
+        Map<VehicleType, Long> result = new EnumMap<>(VehicleType.class);
+        for (VehicleType type : VehicleType.values()) {
+            result.put(type, counts[type.ordinal()]);
+        }
+        return result;
+    }
+
+    // Reads the driver id and fare columns only; fares are summed per code before the
+    // dictionary is consulted
+    public Map<String, Long> revenueByDriver() {
+        Map<String, Long> revenue = new HashMap<>();
+        for (Block block : blocks) {
+            ByteBuffer column = block.column(DRIVER_ID);
+            String[] dictionary = readDictionary(column);
+            IntBuffer codes = column.slice().asIntBuffer();
+            LongBuffer fares = block.column(FARE).asLongBuffer();
+            long[] totals = new long[dictionary.length];
+            for (int row = 0; row < block.rows; row++) {
+                totals[codes.get(row)] += fares.get(row);
+            }
+            for (int code = 0; code < dictionary.length; code++) {
+                revenue.merge(dictionary[code], totals[code], Long::sum);
+            }
+        }
+        return revenue;
+    }
+
+    // Reads the end timestamp and fare columns only, for rides ending in [fromMillis, toMillis)
+    public long revenueBetween(long fromMillis, long toMillis) {
+        long total = 0;
+        for (Block block : blocks) {
+            ByteBuffer timestamps = block.column(ENDED_AT);
+            LongBuffer fares = block.column(FARE).asLongBuffer();
+            long endedAt = timestamps.getLong();
+            for (int row = 0; row < block.rows; row++) {
+                if (row > 0) {
+                    long zigzag = 0;
+                    int shift = 0;
+                    byte next;
+                    do {
+                        next = timestamps.get();
+                        zigzag |= (long) (next & 0x7F) << shift;
+                        shift += 7;
+                    } while (next < 0);
+                    endedAt += (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+                if (endedAt >= fromMillis && endedAt < toMillis) {
+                    total += fares.get(row);
+                }
+            }
+        }
+        return total;
+    }
+
+    public double totalDistance() {
+        double total = 0;
+        for (Block block : blocks) {
+            DoubleBuffer distances = block.column(DISTANCE).asDoubleBuffer();
+            for (int row = 0; row < block.rows; row++) {
+                total += distances.get(row);
+            }
+        }
+        return total;
+    }
+
+    private static String[] readDictionary(ByteBuffer column) {
+        String[] dictionary = new String[column.getInt()];
+        for (int code = 0; code < dictionary.length; code++) {
+            byte[] bytes = new byte[column.getShort() & 0xffff];
+            column.get(bytes);
+            dictionary[code] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return dictionary;
+    }
+
+    private static class Block {
+        private final ByteBuffer data;
+        private final int rows;
+        private final long[] offsets;
+        private final long[] lengths;
+        private final long start;
+
+        private Block(ByteBuffer data, int rows, long[] offsets, long[] lengths, long start) {
+            this.data = data;
+            this.rows = rows;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.start = start;
+        }
+
+        private ByteBuffer column(int column) {
+            ByteBuffer view = data.duplicate();
+            int from = (int) (offsets[column] - start);
+            view.position(from).limit(from + (int) lengths[column]);
+            return view.slice();
+        }
+
+        private VehicleType[] vehicleDictionary() {
+            ByteBuffer column = column(VEHICLE_TYPE);
+            VehicleType[] dictionary = new VehicleType[column.get()];
+            for (int code = 0; code < dictionary.length; code++) {
+                byte[] name = new byte[column.getShort() & 0xffff];
+                column.get(name);
+                dictionary[code] = VehicleType.valueOf(new String(name, StandardCharsets.US_ASCII));
+            }
+            return dictionary;
+        }
+
+        // The per-row codes that follow the vehicle type dictionary
+        private ByteBuffer vehicleCodes() {
+            ByteBuffer column = column(VEHICLE_TYPE);
+            return column.position(column.limit() - rows).slice();
+        }
+    }
+}
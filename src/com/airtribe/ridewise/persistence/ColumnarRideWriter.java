@@ -0,0 +1,363 @@
+package com.airtribe.ridewise.persistence;
+
+import com.airtribe.ridewise.model.*;
+import com.airtribe.ridewise.service.RideEventListener;
+import com.airtribe.ridewise.service.RideService;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// Appends completed rides to a columnar file for analytics. Rows are buffered and written as
+// self-contained blocks:
+//   [int magic][int rows][long length of each of the COLUMNS columns][column data...]
+// Rider and driver ids and the vehicle type are dictionary encoded per block, end timestamps
+// are delta encoded as zigzag varints, distance is a plain double and the fare a long in minor
+// units, so a reader can scan them as a DoubleBuffer and a LongBuffer. A reader skips any
+// column it does not need using the lengths.
+// Full blocks are encoded and written on a background thread, so completing a ride only buffers
+// it. A write failure is kept and rethrown from append, flush and close, but never from
+// rideCompleted; rides that never reach the file are counted in getRowsDropped instead. Detach
+// the writer from its RideService before closing it, or every later completion is dropped.
+// Opening an existing file truncates a block torn by a crash, so new blocks follow the last
+// complete one.
+public class ColumnarRideWriter implements RideEventListener, AutoCloseable {
+    // "RWC2"; version 2 stores fares as minor units
+    static final int BLOCK_MAGIC = 0x52574332;
+    static final int COLUMNS = 7;
+    static final int BLOCK_HEADER_BYTES = 8 + COLUMNS * 8;
+    static final int RIDE_ID = 0;
+    static final int RIDER_ID = 1;
+    static final int DRIVER_ID = 2;
+    static final int VEHICLE_TYPE = 3;
+    static final int DISTANCE = 4;
+    static final int FARE = 5;
+    static final int ENDED_AT = 6;
+
+    private static final int DEFAULT_ROWS_PER_BLOCK = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int rowsPerBlock;
+    private final ExecutorService blockWriter;
+    private List<Ride> buffered = new ArrayList<>();
+    private volatile long rowsWritten;
+    private final LongAdder rowsDropped = new LongAdder();
+    private volatile IOException failure;
+    private boolean closed;
+
+    public ColumnarRideWriter(Path path) throws IOException {
+        this(path, DEFAULT_ROWS_PER_BLOCK);
+    }
+
+    public ColumnarRideWriter(Path path, int rowsPerBlock) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            channel.truncate(lastCompleteBlockEnd(channel));
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.rowsPerBlock = rowsPerBlock;
+        this.blockWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "columnar-ride-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void attach(RideService rideService) {
+        rideService.addEventListener(this);
+    }
+
+    public void detach(RideService rideService) {
+        rideService.removeEventListener(this);
+    }
+
+    // Runs on the thread completing the ride, so nothing is thrown into RideService; the ride
+    // is counted as dropped and the failure stays visible through getFailure
+    @Override
+    public void rideCompleted(Ride ride) {
+        try {
+            append(ride);
+        } catch (IOException | RuntimeException e) {
+            rowsDropped.increment();
+        }
+    }
+
+    public synchronized void append(Ride ride) throws IOException {
+        if (ride.getStatus() != RideStatus.COMPLETED) {
+            throw new IllegalArgumentException("Only completed rides are archived: " + ride.getId());
+        }
+        throwIfFailed();
+        buffered.add(ride);
+        if (buffered.size() >= rowsPerBlock) {
+            submitBlock();
+        }
+    }
+
+    // Writes out every buffered ride and waits until the writer thread has finished with them
+    public synchronized void flush() throws IOException {
+        throwIfFailed();
+        Future<?> written = submitBlock();
+        if (written == null) {
+            written = blockWriter.submit(() -> { });
+        }
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the columnar archive");
+        } catch (ExecutionException e) {
+            throw new IOException("Columnar archive write failed", e.getCause());
+        }
+        throwIfFailed();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    // Rides lost to a failed block or refused after a failure or close
+    public long getRowsDropped() {
+        return rowsDropped.sum();
+    }
+
+    // The write failure that stopped the archive, or null while it is healthy
+    public IOException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            closed = true;
+            blockWriter.shutdown();
+            channel.close();
+        }
+    }
+
+    private Future<?> submitBlock() {
+        if (buffered.isEmpty()) {
+            return null;
+        }
+        List<Ride> rows = buffered;
+        buffered = new ArrayList<>();
+        return blockWriter.submit(() -> writeBlock(rows));
+    }
+
+    private void throwIfFailed() throws IOException {
+        if (closed) {
+            throw new IOException("Columnar archive is closed");
+        }
+        IOException failed = failure;
+        if (failed != null) {
+            throw new IOException("Columnar archive write failed", failed);
+        }
+    }
+
+    // Writer thread only; once a block fails the file may end mid-block, so later blocks are
+    // not appended after it
+    private void writeBlock(List<Ride> rows) {
+        if (failure != null) {
+            rowsDropped.add(rows.size());
+            return;
+        }
+        try {
+            ByteBuffer[] columns = {
+                    encodeRideIds(rows),
+                    encodeDictionary(rows, RIDER_ID),
+                    encodeDictionary(rows, DRIVER_ID),
+                    encodeVehicleTypes(rows),
+                    encodeDistances(rows),
+                    encodeFares(rows),
+                    encodeEndedAt(rows)
+            };
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            header.putInt(BLOCK_MAGIC);
+            header.putInt(rows.size());
+            for (ByteBuffer column : columns) {
+                column.flip();
+                header.putLong(column.remaining());
+            }
+            header.flip();
+
+            ByteBuffer[] block = new ByteBuffer[COLUMNS + 1];
+            block[0] = header;
+            System.arraycopy(columns, 0, block, 1, COLUMNS);
+            while (block[COLUMNS].hasRemaining()) {
+                channel.write(block);
+            }
+            rowsWritten += rows.size();
+        } catch (IOException e) {
+            failure = e;
+            rowsDropped.add(rows.size());
+        } catch (RuntimeException e) {
+            failure = new IOException("Columnar block encoding failed", e);
+            rowsDropped.add(rows.size());
+        }
+    }
+
+    // Walks the block headers the way ColumnarRideReader does and returns the offset just past
+    // the last block that is fully on disk
+    private static long lastCompleteBlockEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        while (size - position >= BLOCK_HEADER_BYTES) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (channel.read(header, position + header.position()) < 0) {
+                    return position;
+                }
+            }
+            header.flip();
+            if (header.getInt() != BLOCK_MAGIC) {
+                return position;
+            }
+            header.getInt();
+            long end = position + BLOCK_HEADER_BYTES;
+            for (int column = 0; column < COLUMNS; column++) {
+                long length = header.getLong();
+                if (length < 0) {
+                    return position;
+                }
+                end += length;
+            }
+            if (end > size) {
+                return position;
+            }
+            position = end;
+        }
+        return position;
+    }
+
+    // [int offsets, rows + 1][UTF-8 bytes]
+    private static ByteBuffer encodeRideIds(List<Ride> rides) {
+        List<byte[]> ids = new ArrayList<>(rides.size());
+        int bytes = 0;
+        for (Ride ride : rides) {
+            byte[] id = ride.getId().getBytes(StandardCharsets.UTF_8);
+            ids.add(id);
+            bytes += id.length;
+        }
+        ByteBuffer column = ByteBuffer.allocate(4 * (ids.size() + 1) + bytes);
+        int offset = 0;
+        column.putInt(offset);
+        for (byte[] id : ids) {
+            offset += id.length;
+            column.putInt(offset);
+        }
+        for (byte[] id : ids) {
+            column.put(id);
+        }
+        return column;
+    }
+
+    // [int dictionary size][short length + UTF-8 bytes per entry][int code per row]
+    private static ByteBuffer encodeDictionary(List<Ride> rides, int columnIndex) {
+        Map<String, Integer> codes = new HashMap<>();
+        List<byte[]> dictionary = new ArrayList<>();
+        int[] rows = new int[rides.size()];
+        int dictionaryBytes = 0;
+        for (int row = 0; row < rows.length; row++) {
+            Ride ride = rides.get(row);
+            String value = columnIndex == RIDER_ID ? ride.getRider().getId() : ride.getDriver().getId();
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codes.put(value, code);
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                dictionary.add(bytes);
+                dictionaryBytes += 2 + bytes.length;
+            }
+            rows[row] = code;
+        }
+        ByteBuffer column = ByteBuffer.allocate(4 + dictionaryBytes + 4 * rows.length);
+        column.putInt(dictionary.size());
+        for (byte[] bytes : dictionary) {
+            column.putShort((short) bytes.length);
+            column.put(bytes);
+        }
+        for (int code : rows) {
+            column.putInt(code);
+        }
+        return column;
+    }
+
+    // The dictionary is the enum names, so files stay readable if VehicleType is reordered:
+    // [byte dictionary size][short length + name per entry][byte code per row]
+    private static ByteBuffer encodeVehicleTypes(List<Ride> rides) {
+        VehicleType[] types = VehicleType.values();
+        int dictionaryBytes = 0;
+        for (VehicleType type : types) {
+            dictionaryBytes += 2 + type.name().length();
+        }
+        ByteBuffer column = ByteBuffer.allocate(1 + dictionaryBytes + rides.size());
+        column.put((byte) types.length);
+        for (VehicleType type : types) {
+            byte[] name = type.name().getBytes(StandardCharsets.US_ASCII);
+            column.putShort((short) name.length);
+            column.put(name);
+        }
+        for (Ride ride : rides) {
+            column.put((byte) ride.getVehicleType().ordinal());
+        }
+        return column;
+    }
+
+    private static ByteBuffer encodeDistances(List<Ride> rides) {
+        ByteBuffer column = ByteBuffer.allocate(8 * rides.size());
+        for (Ride ride : rides) {
+            column.putDouble(ride.getDistance());
+        }
+        return column;
+    }
+
+    private static ByteBuffer encodeFares(List<Ride> rides) {
+        ByteBuffer column = ByteBuffer.allocate(8 * rides.size());
+        for (Ride ride : rides) {
+            column.putLong(ride.getFareReceipt().getAmountMinorUnits());
+        }
+        return column;
+    }
+
+    // [long first][zigzag varint delta per following row]; rides arrive roughly in end order,
+    // so most deltas fit in one or two bytes
+    private static ByteBuffer encodeEndedAt(List<Ride> rides) {
+        ByteBuffer column = ByteBuffer.allocate(8 + 10 * rides.size());
+        long previous = rides.get(0).getEndedAtMillis();
+        column.putLong(previous);
+        for (int row = 1; row < rides.size(); row++) {
+            long value = rides.get(row).getEndedAtMillis();
+            long delta = value - previous;
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                column.put((byte) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            column.put((byte) zigzag);
+            previous = value;
+        }
+        return column;
+    }
+}
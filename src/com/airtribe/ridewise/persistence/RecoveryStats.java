@@ -0,0 +1,38 @@
+package com.airtribe.ridewise.persistence;
+
+public class RecoveryStats {
+    private final long eventsReplayed;
+    private final long bytesRead;
+    private final long durationNanos;
+    private final boolean truncatedTail;
+
+    public RecoveryStats(long eventsReplayed, long bytesRead, long durationNanos, boolean truncatedTail) {
+        this.eventsReplayed = eventsReplayed;
+        this.bytesRead = bytesRead;
+        this.durationNanos = durationNanos;
+        this.truncatedTail = truncatedTail;
+    }
+
+    public long getEventsReplayed() {
+        return eventsReplayed;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    // True when replay stopped at a torn or corrupt record at the end of the log
+    public boolean hasTruncatedTail() {
+        return truncatedTail;
+    }
+
+    @Override
+    public String toString() {
+        return "RecoveryStats{events=" + eventsReplayed + ", bytes=" + bytesRead +
+               ", durationMs=" + durationNanos / 1_000_000.0 + ", truncatedTail=" + truncatedTail + "}";
+    }
+}
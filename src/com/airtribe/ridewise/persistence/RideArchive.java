@@ -0,0 +1,246 @@
+package com.airtribe.ridewise.persistence;
+
+import com.airtribe.ridewise.model.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Off-heap store for rides that have left the hot map. Each ride is serialised once into
+// direct-buffer segments; the only heap cost per ride is one slot in an open-addressing table
+// from id hash to record location. Archived rides are read back as detached copies that
+// reference live Driver objects but carry their own Rider snapshot. The archive holds at most
+// maxSegments segments: starting a new one past that drops the oldest, and the rides in it are
+// no longer found. Their slots stay behind as stale entries until the table is next rebuilt.
+public class RideArchive {
+    private static final int SEGMENT_BITS = 20;
+    private static final int SEGMENT_BYTES = 1 << SEGMENT_BITS;
+    private static final int MAX_STRING_BYTES = 0xffff;
+    // 1 GiB off-heap
+    private static final int DEFAULT_MAX_SEGMENTS = 1024;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+    private static final RideStatus[] STATUSES = RideStatus.values();
+    private static final long NO_FARE = Long.MIN_VALUE;
+
+    private final Function<String, Driver> driverLookup;
+    private final int maxSegments;
+    private final List<Segment> segments = new ArrayList<>();
+    // Segment number of the oldest segment still held; locations carry absolute numbers
+    private long firstSegment;
+    private Segment current;
+    // Record location + 1, so that zero marks an empty slot
+    private long[] slots = new long[1024];
+    private int count;
+    private int staleSlots;
+    private long droppedRides;
+
+    public RideArchive(Function<String, Driver> driverLookup) {
+        this(driverLookup, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public RideArchive(Function<String, Driver> driverLookup, int maxSegments) {
+        if (maxSegments <= 0) {
+            throw new IllegalArgumentException("Archive needs at least one segment");
+        }
+        this.driverLookup = driverLookup;
+        this.maxSegments = maxSegments;
+    }
+
+    // Each string field is length-prefixed with an unsigned short, so a field over 64 KiB is
+    // rejected rather than written with a wrapped length; that also keeps any record well
+    // inside one segment
+    public synchronized void append(Ride ride) {
+        byte[] id = utf8(ride.getId());
+        Rider rider = ride.getRider();
+        byte[] riderId = utf8(rider.getId());
+        byte[] riderName = utf8(rider.getName());
+        byte[] riderLocation = utf8(rider.getLocation());
+        byte[] driverId = utf8(ride.getDriver() != null ? ride.getDriver().getId() : "");
+        FareReceipt receipt = ride.getFareReceipt();
+        int recordBytes = 2 * 5 + id.length + riderId.length + riderName.length + riderLocation.length
+                + driverId.length + 16 + 2 + 8 + 8 + 8 + 8 + 8;
+        if (recordBytes > SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Ride " + ride.getId() + " needs " + recordBytes
+                    + " bytes, more than an archive segment holds");
+        }
+
+        if (current == null || current.buffer.remaining() < recordBytes) {
+            startSegment();
+        }
+        ByteBuffer buffer = current.buffer;
+        long location = (current.number << SEGMENT_BITS) | buffer.position();
+        putString(buffer, id);
+        putString(buffer, riderId);
+        putString(buffer, riderName);
+        putString(buffer, riderLocation);
+        buffer.putDouble(rider.getLatitude());
+        buffer.putDouble(rider.getLongitude());
+        putString(buffer, driverId);
+        buffer.put((byte) ride.getVehicleType().ordinal());
+        buffer.put((byte) ride.getStatus().ordinal());
+        buffer.putDouble(ride.getDistance());
+        buffer.putLong(receipt != null ? receipt.getAmountMinorUnits() : NO_FARE);
+        buffer.putLong(receipt != null ? toEpochMillis(receipt.getGeneratedAt()) : 0L);
+        buffer.putLong(ride.getRequestedAtMillis());
+        buffer.putLong(ride.getEndedAtMillis());
+        current.records++;
+
+        if ((count + staleSlots + 1) * 2 > slots.length) {
+            rehash();
+        }
+        insert(ride.getId().hashCode(), location);
+        count++;
+    }
+
+    public synchronized Ride find(String rideId) {
+        int mask = slots.length - 1;
+        for (int slot = mix(rideId.hashCode()) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            long location = slots[slot] - 1;
+            if (isDropped(location)) {
+                continue;
+            }
+            ByteBuffer record = record(location);
+            if (getString(record).equals(rideId)) {
+                return decode(rideId, record);
+            }
+        }
+        return null;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    // Rides that aged out with the segments dropped to stay within maxSegments
+    public synchronized long droppedRides() {
+        return droppedRides;
+    }
+
+    // Off-heap segment bytes in use plus the on-heap slot table
+    public synchronized long memoryBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment == current ? segment.buffer.position() : segment.buffer.capacity();
+        }
+        return used + (long) slots.length * Long.BYTES;
+    }
+
+    private void startSegment() {
+        if (segments.size() == maxSegments) {
+            // Shifts at most maxSegments references, once per segment
+            Segment oldest = segments.remove(0);
+            firstSegment++;
+            count -= oldest.records;
+            staleSlots += oldest.records;
+            droppedRides += oldest.records;
+        }
+        current = new Segment(firstSegment + segments.size());
+        segments.add(current);
+    }
+
+    private boolean isDropped(long location) {
+        return (location >>> SEGMENT_BITS) < firstSegment;
+    }
+
+    private Ride decode(String rideId, ByteBuffer record) {
+        String riderId = getString(record);
+        String riderName = getString(record);
+        String riderLocation = getString(record);
+        Rider rider = new Rider(riderId, riderName, riderLocation, record.getDouble(), record.getDouble());
+        String driverId = getString(record);
+        VehicleType vehicleType = VEHICLE_TYPES[record.get()];
+        RideStatus status = STATUSES[record.get()];
+        double distance = record.getDouble();
+        long fare = record.getLong();
+        long receiptMillis = record.getLong();
+        long requestedAt = record.getLong();
+        long endedAt = record.getLong();
+
+        Ride ride = new Ride(rideId, rider, distance, vehicleType, requestedAt);
+        if (!driverId.isEmpty()) {
+            ride.setDriver(driverLookup.apply(driverId));
+        }
+        if (fare != NO_FARE) {
+            ride.setFareReceipt(new FareReceipt(rideId, fare,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(receiptMillis), ZoneId.systemDefault())));
+        }
+        ride.setStatus(status);
+        ride.setEndedAtMillis(endedAt);
+        return ride;
+    }
+
+    // Segments are numbered consecutively, so a live one is found by its offset from the oldest
+    private ByteBuffer record(long location) {
+        ByteBuffer record = segments.get((int) ((location >>> SEGMENT_BITS) - firstSegment)).buffer.duplicate();
+        record.position((int) (location & (SEGMENT_BYTES - 1)));
+        return record;
+    }
+
+    // Sized for the live records only, so stale slots of dropped segments go away here
+    private void rehash() {
+        int capacity = 1024;
+        while ((count + 1) * 2 > capacity) {
+            capacity <<= 1;
+        }
+        long[] old = slots;
+        slots = new long[capacity];
+        staleSlots = 0;
+        for (long entry : old) {
+            if (entry != 0 && !isDropped(entry - 1)) {
+                insert(getString(record(entry - 1)).hashCode(), entry - 1);
+            }
+        }
+    }
+
+    private void insert(int hash, long location) {
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = location + 1;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Archived text fields are limited to " + MAX_STRING_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    private static final class Segment {
+        private final long number;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(SEGMENT_BYTES);
+        private int records;
+
+        private Segment(long number) {
+            this.number = number;
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,520 @@
+package com.airtribe.ridewise.persistence;
+
+import com.airtribe.ridewise.model.*;
+import com.airtribe.ridewise.service.DriverService;
+import com.airtribe.ridewise.service.RideEventListener;
+import com.airtribe.ridewise.service.RideService;
+import com.airtribe.ridewise.service.RiderService;
+import com.airtribe.ridewise.util.Money;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead log of service state changes. Each record is framed as
+// [int payload length][int CRC32 of payload][payload], where the payload starts with a type byte.
+// Appenders encode into a shared buffer; a single writer thread swaps it out, writes it and
+// fsyncs once per batch (group commit). With synchronous commits an appender returns only once
+// the batch holding its record is durable.
+public class RideEventLog implements RideEventListener, AutoCloseable {
+    private static final byte RIDER_REGISTERED = 1;
+    private static final byte DRIVER_REGISTERED = 2;
+    private static final byte DRIVER_AVAILABILITY = 3;
+    private static final byte DRIVER_LOCATION = 4;
+    private static final byte RIDE_REQUESTED = 5;
+    private static final byte RIDE_ASSIGNED = 6;
+    private static final byte RIDE_COMPLETED = 7;
+    private static final byte RIDE_CANCELLED = 8;
+    // Replaces RIDE_COMPLETED, whose fare was a double; old logs still replay
+    private static final byte RIDE_COMPLETED_MINOR_UNITS = 9;
+    // A driver claimed for a ride; replay releases it unless a RIDE_ASSIGNED for it follows
+    private static final byte DRIVER_RESERVED = 10;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final FileChannel channel;
+    private final boolean synchronousCommit;
+    private final Thread writer;
+    private final CRC32 crc = new CRC32();
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer writing = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long appendedSequence;
+    private long durableSequence;
+    private long bytesWritten;
+    private long syncCount;
+    private boolean closed;
+    private IOException failure;
+
+    public RideEventLog(Path path, boolean synchronousCommit) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.synchronousCommit = synchronousCommit;
+        this.writer = new Thread(this::writeLoop, "ride-event-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Registers the log with all three services; call after replay so restored state is not re-logged
+    public void attach(RiderService riderService, DriverService driverService, RideService rideService) {
+        riderService.addEventListener(this);
+        driverService.addEventListener(this);
+        rideService.addEventListener(this);
+    }
+
+    @Override
+    public void riderRegistered(Rider rider) {
+        byte[] id = utf8(rider.getId());
+        byte[] name = utf8(rider.getName());
+        byte[] location = utf8(rider.getLocation());
+        append(RIDER_REGISTERED, sizeOf(id) + sizeOf(name) + sizeOf(location) + 16, buffer -> {
+            putString(buffer, id);
+            putString(buffer, name);
+            putString(buffer, location);
+            buffer.putDouble(rider.getLatitude());
+            buffer.putDouble(rider.getLongitude());
+        });
+    }
+
+    @Override
+    public void driverRegistered(Driver driver) {
+        byte[] id = utf8(driver.getId());
+        byte[] name = utf8(driver.getName());
+        byte[] location = utf8(driver.getCurrentLocation());
+        append(DRIVER_REGISTERED, sizeOf(id) + sizeOf(name) + sizeOf(location) + 17, buffer -> {
+            putString(buffer, id);
+            putString(buffer, name);
+            putString(buffer, location);
+            buffer.putDouble(driver.getLatitude());
+            buffer.putDouble(driver.getLongitude());
+            buffer.put((byte) driver.getVehicleType().ordinal());
+        });
+    }
+
+    @Override
+    public void driverAvailabilityChanged(Driver driver, boolean available) {
+        byte[] id = utf8(driver.getId());
+        append(DRIVER_AVAILABILITY, sizeOf(id) + 1, buffer -> {
+            putString(buffer, id);
+            buffer.put((byte) (available ? 1 : 0));
+        });
+    }
+
+    @Override
+    public void driverReserved(Driver driver) {
+        byte[] id = utf8(driver.getId());
+        append(DRIVER_RESERVED, sizeOf(id), buffer -> putString(buffer, id));
+    }
+
+    @Override
+    public void driverLocationChanged(Driver driver) {
+        byte[] id = utf8(driver.getId());
+        byte[] location = utf8(driver.getCurrentLocation());
+        append(DRIVER_LOCATION, sizeOf(id) + sizeOf(location) + 16, buffer -> {
+            putString(buffer, id);
+            putString(buffer, location);
+            buffer.putDouble(driver.getLatitude());
+            buffer.putDouble(driver.getLongitude());
+        });
+    }
+
+    @Override
+    public void rideRequested(Ride ride) {
+        byte[] id = utf8(ride.getId());
+        byte[] riderId = utf8(ride.getRider().getId());
+        append(RIDE_REQUESTED, sizeOf(id) + sizeOf(riderId) + 9, buffer -> {
+            putString(buffer, id);
+            putString(buffer, riderId);
+            buffer.putDouble(ride.getDistance());
+            buffer.put((byte) ride.getVehicleType().ordinal());
+        });
+    }
+
+    @Override
+    public void rideAssigned(Ride ride) {
+        byte[] id = utf8(ride.getId());
+        byte[] driverId = utf8(ride.getDriver().getId());
+        append(RIDE_ASSIGNED, sizeOf(id) + sizeOf(driverId), buffer -> {
+            putString(buffer, id);
+            putString(buffer, driverId);
+        });
+    }
+
+    @Override
+    public void rideCompleted(Ride ride) {
+        byte[] id = utf8(ride.getId());
+        long fare = ride.getFareReceipt() != null ? ride.getFareReceipt().getAmountMinorUnits() : 0L;
+        append(RIDE_COMPLETED_MINOR_UNITS, sizeOf(id) + 8, buffer -> {
+            putString(buffer, id);
+            buffer.putLong(fare);
+        });
+    }
+
+    @Override
+    public void rideCancelled(Ride ride) {
+        byte[] id = utf8(ride.getId());
+        append(RIDE_CANCELLED, sizeOf(id), buffer -> putString(buffer, id));
+    }
+
+    public synchronized long getRecordsAppended() {
+        return appendedSequence;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    // Blocks until everything appended so far has been written and fsynced
+    public void flush() {
+        synchronized (this) {
+            awaitDurable(appendedSequence);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        UncheckedIOException unwritten = null;
+        synchronized (this) {
+            try {
+                awaitDurable(appendedSequence);
+            } catch (UncheckedIOException e) {
+                // Still stop the writer and release the file; report the loss after
+                unwritten = e;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (unwritten != null) {
+            throw unwritten.getCause();
+        }
+    }
+
+    private void append(byte type, int payloadBytes, RecordWriter body) {
+        int recordBytes = HEADER_BYTES + 1 + payloadBytes;
+        long sequence;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Event log is closed");
+            }
+            // Without this, asynchronous appends would keep buffering after the writer died
+            if (failure != null) {
+                throw new UncheckedIOException("Event log write failed", failure);
+            }
+            ensureCapacity(recordBytes);
+            int start = pending.position();
+            pending.putInt(1 + payloadBytes);
+            pending.putInt(0);
+            pending.put(type);
+            body.write(pending);
+
+            ByteBuffer payload = pending.duplicate();
+            payload.position(start + HEADER_BYTES).limit(pending.position());
+            crc.reset();
+            crc.update(payload);
+            pending.putInt(start + 4, (int) crc.getValue());
+
+            sequence = ++appendedSequence;
+            notifyAll();
+            if (synchronousCommit) {
+                awaitDurable(sequence);
+            }
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        while (durableSequence < sequence && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Event log write failed", failure);
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            long batchEnd;
+            synchronized (this) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Nothing will be written any more; fail waiters instead of hanging them
+                        InterruptedIOException interrupted = new InterruptedIOException("Event log writer interrupted");
+                        interrupted.initCause(e);
+                        failure = interrupted;
+                        notifyAll();
+                        return;
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer swap = writing;
+                writing = pending;
+                pending = swap;
+                pending.clear();
+                batchEnd = appendedSequence;
+            }
+
+            writing.flip();
+            int batchBytes = writing.remaining();
+            try {
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            writing.clear();
+
+            synchronized (this) {
+                durableSequence = batchEnd;
+                bytesWritten += batchBytes;
+                syncCount++;
+                notifyAll();
+            }
+        }
+    }
+
+    private void ensureCapacity(int recordBytes) {
+        if (pending.remaining() >= recordBytes) {
+            return;
+        }
+        int capacity = pending.capacity();
+        while (capacity - pending.position() < recordBytes) {
+            capacity *= 2;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        pending.flip();
+        grown.put(pending);
+        pending = grown;
+    }
+
+    // Rebuilds rider, driver and ride state from the log into empty services. Replay stops at the
+    // first torn or corrupt record, which can only be the tail of an interrupted batch. A
+    // reservation and its ride are separate records, so a torn tail can keep the first and lose
+    // the second: drivers still reserved without a restored ride are released at the end, and
+    // rides that never got a driver, or whose rider or driver is unknown, are dropped.
+    public static RecoveryStats replay(Path path,
+                                       RiderService riderService,
+                                       DriverService driverService,
+                                       RideService rideService) throws IOException {
+        long started = System.nanoTime();
+        if (!Files.exists(path)) {
+            return new RecoveryStats(0, 0, System.nanoTime() - started, false);
+        }
+
+        ByteBuffer log;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        Map<String, Ride> rides = new HashMap<>();
+        Set<String> reservedDrivers = new HashSet<>();
+        CRC32 crc = new CRC32();
+        long events = 0;
+        boolean truncated = false;
+
+        while (log.remaining() >= HEADER_BYTES) {
+            int start = log.position();
+            int length = log.getInt();
+            int checksum = log.getInt();
+            if (length <= 0 || length > log.remaining()) {
+                truncated = true;
+                log.position(start);
+                break;
+            }
+            ByteBuffer payload = log.slice();
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                truncated = true;
+                log.position(start);
+                break;
+            }
+            try {
+                apply(payload, riderService, driverService, rides, reservedDrivers);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                truncated = true;
+                log.position(start);
+                break;
+            }
+            log.position(start + HEADER_BYTES + length);
+            events++;
+        }
+        if (log.hasRemaining() && !truncated) {
+            truncated = true;
+        }
+
+        for (Iterator<Ride> iterator = rides.values().iterator(); iterator.hasNext(); ) {
+            Ride ride = iterator.next();
+            if (ride.getStatus() == RideStatus.REQUESTED) {
+                iterator.remove();
+            } else {
+                rideService.restoreRide(ride);
+            }
+        }
+        for (String driverId : reservedDrivers) {
+            driverService.updateAvailability(driverId, true);
+        }
+        int validBytes = log.position();
+        if (truncated) {
+            // Drop the torn tail so records appended after recovery stay reachable
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+            }
+        }
+        return new RecoveryStats(events, validBytes, System.nanoTime() - started, truncated);
+    }
+
+    private static void apply(ByteBuffer payload,
+                              RiderService riderService,
+                              DriverService driverService,
+                              Map<String, Ride> rides,
+                              Set<String> reservedDrivers) {
+        byte type = payload.get();
+        switch (type) {
+            case RIDER_REGISTERED: {
+                String id = getString(payload);
+                String name = getString(payload);
+                String location = getString(payload);
+                riderService.restoreRider(new Rider(id, name, location, payload.getDouble(), payload.getDouble()));
+                break;
+            }
+            case DRIVER_REGISTERED: {
+                String id = getString(payload);
+                String name = getString(payload);
+                String location = getString(payload);
+                double latitude = payload.getDouble();
+                double longitude = payload.getDouble();
+                VehicleType vehicleType = VEHICLE_TYPES[payload.get()];
+                driverService.restoreDriver(new Driver(id, name, location, latitude, longitude, vehicleType));
+                break;
+            }
+            case DRIVER_AVAILABILITY: {
+                String id = getString(payload);
+                reservedDrivers.remove(id);
+                driverService.updateAvailability(id, payload.get() != 0);
+                break;
+            }
+            case DRIVER_RESERVED: {
+                String id = getString(payload);
+                if (driverService.getDriverById(id) != null) {
+                    reservedDrivers.add(id);
+                    driverService.updateAvailability(id, false);
+                }
+                break;
+            }
+            case DRIVER_LOCATION: {
+                String id = getString(payload);
+                String location = getString(payload);
+                driverService.updateLocation(id, location, payload.getDouble(), payload.getDouble());
+                break;
+            }
+            case RIDE_REQUESTED: {
+                String id = getString(payload);
+                Rider rider = riderService.getRiderById(getString(payload));
+                double distance = payload.getDouble();
+                VehicleType vehicleType = VEHICLE_TYPES[payload.get()];
+                if (rider != null) {
+                    rides.put(id, new Ride(id, rider, distance, vehicleType));
+                }
+                break;
+            }
+            case RIDE_ASSIGNED: {
+                Ride ride = rides.get(getString(payload));
+                Driver driver = driverService.getDriverById(getString(payload));
+                if (ride != null && driver != null) {
+                    ride.setDriver(driver);
+                    ride.setStatus(RideStatus.ASSIGNED);
+                    reservedDrivers.remove(driver.getId());
+                }
+                break;
+            }
+            case RIDE_COMPLETED:
+            case RIDE_COMPLETED_MINOR_UNITS: {
+                Ride ride = rides.get(getString(payload));
+                long fare = type == RIDE_COMPLETED ? Money.fromMajor(payload.getDouble()) : payload.getLong();
+                if (ride != null) {
+                    ride.setFareReceipt(new FareReceipt(ride.getId(), fare));
+                    ride.setStatus(RideStatus.COMPLETED);
+                    if (ride.getDriver() != null) {
+                        driverService.recordRideCompleted(ride.getDriver().getId());
+                    }
+                }
+                break;
+            }
+            case RIDE_CANCELLED: {
+                Ride ride = rides.get(getString(payload));
+                if (ride != null) {
+                    ride.setStatus(RideStatus.CANCELLED);
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown event type " + type);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] bytes) {
+        return 2 + bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private interface RecordWriter {
+        void write(ByteBuffer buffer);
+    }
+}
@@ -0,0 +1,238 @@
+package com.airtribe.ridewise.service;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Ride;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Non-blocking front end to RideService. A request that finds no free driver waits in a
+// per-vehicle-type queue until its deadline instead of being retried by the caller, and is
+// served as soon as a matching driver becomes available again. Waiting requests hold no thread.
+public class AsyncRideDispatcher implements RideEventListener, AutoCloseable {
+    private final RideService rideService;
+    private final DriverService driverService;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final Map<VehicleType, Deque<PendingRequest>> pending = new EnumMap<>(VehicleType.class);
+    private final AtomicInteger waiting = new AtomicInteger();
+    private volatile boolean closed;
+
+    public AsyncRideDispatcher(RideService rideService, DriverService driverService) {
+        this.rideService = rideService;
+        this.driverService = driverService;
+        this.executor = newDispatchExecutor();
+        ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ride-request-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A matched request cancels its deadline; drop it from the queue then, not at expiry
+        deadlines.setRemoveOnCancelPolicy(true);
+        this.timer = deadlines;
+        for (VehicleType vehicleType : VehicleType.values()) {
+            pending.put(vehicleType, new ConcurrentLinkedDeque<>());
+        }
+        driverService.addEventListener(this);
+    }
+
+    public CompletableFuture<Ride> requestRide(Rider rider, double distance, VehicleType vehicleType, Duration maxWait) {
+        PendingRequest request = new PendingRequest(rider, distance, vehicleType);
+        rideService.recordDemand(rider, vehicleType);
+        try {
+            executor.execute(() -> {
+                if (tryServe(request)) {
+                    return;
+                }
+                request.queued = true;
+                waiting.incrementAndGet();
+                pending.get(vehicleType).offerLast(request);
+                try {
+                    request.deadline = timer.schedule(() -> expire(request), maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // Closed while matching; close() may already have drained the queue
+                    expire(request);
+                    return;
+                }
+                // Served by a concurrent drain before the deadline was stored
+                if (request.result.isDone()) {
+                    request.deadline.cancel(false);
+                }
+                // A driver may have been freed between the failed attempt and the enqueue
+                servePending(vehicleType);
+            });
+        } catch (RejectedExecutionException e) {
+            request.result.completeExceptionally(new NoDriverAvailableException("Dispatcher closed"));
+        }
+        return request.result;
+    }
+
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    // Runs under the driver's lock, so the queues are drained on the dispatch executor instead.
+    // Skips the hop when no request could take the freed driver; a request that enqueues right
+    // after this check drains its own queue once it is in.
+    @Override
+    public void driverAvailabilityChanged(Driver driver, boolean available) {
+        if (!available || closed || waiting.get() == 0) {
+            return;
+        }
+        VehicleType freedType = driver.getVehicleType();
+        if (!hasWaitersFor(freedType)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                servePending(freedType);
+                for (VehicleType requested : VehicleType.values()) {
+                    if (requested != freedType && fallsBackTo(requested, freedType)) {
+                        servePending(requested);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed after the check above; nothing is waiting any more. Throwing here would
+            // fail the caller's updateAvailability.
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        driverService.removeEventListener(this);
+        timer.shutdownNow();
+        executor.shutdown();
+        for (Deque<PendingRequest> queue : pending.values()) {
+            PendingRequest request;
+            while ((request = queue.pollFirst()) != null) {
+                if (request.result.completeExceptionally(new NoDriverAvailableException("Dispatcher closed"))) {
+                    waiting.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    // Serves the oldest waiting requests of one type until a match fails. Each request is taken
+    // off the queue before matching so concurrent drains never serve it twice.
+    private void servePending(VehicleType vehicleType) {
+        Deque<PendingRequest> queue = pending.get(vehicleType);
+        PendingRequest request;
+        while ((request = queue.pollFirst()) != null) {
+            if (request.result.isDone()) {
+                continue;
+            }
+            if (!tryServe(request)) {
+                queue.offerFirst(request);
+                // It may have expired while off the queue, after expire() looked for it
+                if (request.result.isDone()) {
+                    queue.remove(request);
+                }
+                return;
+            }
+        }
+    }
+
+    private boolean tryServe(PendingRequest request) {
+        Ride ride;
+        try {
+            ride = rideService.assignRide(request.rider, request.distance, request.vehicleType);
+        } catch (NoDriverAvailableException e) {
+            return false;
+        } catch (RuntimeException e) {
+            if (request.result.completeExceptionally(e) && request.queued) {
+                waiting.decrementAndGet();
+                cancelDeadline(request);
+            }
+            return true;
+        }
+        if (request.result.complete(ride)) {
+            if (request.queued) {
+                waiting.decrementAndGet();
+                cancelDeadline(request);
+            }
+        } else {
+            // Deadline passed while matching; hand the driver back
+            rideService.cancelRide(ride.getId());
+        }
+        return true;
+    }
+
+    // Also unlinks the request, so a queue no driver frees up does not keep expired requests
+    private void expire(PendingRequest request) {
+        if (request.result.completeExceptionally(new NoDriverAvailableException(
+                "No " + request.vehicleType + " driver became available in time"))) {
+            waiting.decrementAndGet();
+        }
+        pending.get(request.vehicleType).remove(request);
+    }
+
+    private static void cancelDeadline(PendingRequest request) {
+        ScheduledFuture<?> deadline = request.deadline;
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+    }
+
+    private boolean hasWaitersFor(VehicleType freedType) {
+        for (VehicleType requested : VehicleType.values()) {
+            if (!pending.get(requested).isEmpty()
+                    && (requested == freedType || fallsBackTo(requested, freedType))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean fallsBackTo(VehicleType requested, VehicleType freedType) {
+        for (VehicleType fallback : rideService.getFallbackOrder(requested)) {
+            if (fallback == freedType) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Virtual threads where the runtime has them (Java 21+), otherwise a cached daemon pool
+    private static ExecutorService newDispatchExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "ride-dispatch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static class PendingRequest {
+        private final Rider rider;
+        private final double distance;
+        private final VehicleType vehicleType;
+        private final CompletableFuture<Ride> result = new CompletableFuture<>();
+        private volatile boolean queued;
+        private volatile ScheduledFuture<?> deadline;
+
+        private PendingRequest(Rider rider, double distance, VehicleType vehicleType) {
+            this.rider = rider;
+            this.distance = distance;
+            this.vehicleType = vehicleType;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.airtribe.ridewise.service;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Ride;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.strategy.BatchRideMatchingStrategy;
+import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Collects ride requests for a short window (or until the batch is full) and matches each
+// vehicle type's requests together, so riders competing for the same drivers are assigned
+// jointly instead of greedily.
+public class BatchDispatcher implements AutoCloseable {
+    private final BatchRideMatchingStrategy batchStrategy;
+    private final RideService rideService;
+    private final DriverService driverService;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private List<PendingRequest> pending = new ArrayList<>();
+    // Guarded by this, like pending, so nothing can be queued after close() takes the last batch
+    private boolean closed;
+
+    public BatchDispatcher(BatchRideMatchingStrategy batchStrategy,
+                           RideService rideService,
+                           DriverService driverService,
+                           long windowMillis,
+                           int maxBatchSize) {
+        if (windowMillis <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch window and size must be positive");
+        }
+        this.batchStrategy = batchStrategy;
+        this.rideService = rideService;
+        this.driverService = driverService;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<Ride> submit(Rider rider, double distance, VehicleType vehicleType) {
+        PendingRequest request = new PendingRequest(rider, distance, vehicleType);
+        boolean full;
+        synchronized (this) {
+            if (closed) {
+                request.result.completeExceptionally(new NoDriverAvailableException("Dispatcher closed"));
+                return request.result;
+            }
+            pending.add(request);
+            full = pending.size() >= maxBatchSize;
+        }
+        rideService.recordDemand(rider, vehicleType);
+        if (full) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // Closed since the request was queued; close() flushes it
+            }
+        }
+        return request.result;
+    }
+
+    // Matches everything queued so far; also runs on the window timer
+    public void flush() {
+        List<PendingRequest> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        Map<VehicleType, List<PendingRequest>> byType = new EnumMap<>(VehicleType.class);
+        for (PendingRequest request : batch) {
+            byType.computeIfAbsent(request.vehicleType, type -> new ArrayList<>()).add(request);
+        }
+        // Never lets an exception out: it would cancel the window timer and strand the batch
+        for (Map.Entry<VehicleType, List<PendingRequest>> group : byType.entrySet()) {
+            try {
+                dispatch(group.getKey(), group.getValue());
+            } catch (RuntimeException e) {
+                for (PendingRequest request : group.getValue()) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void dispatch(VehicleType vehicleType, List<PendingRequest> batch) {
+        List<Rider> riders = new ArrayList<>(batch.size());
+        for (PendingRequest request : batch) {
+            riders.add(request.rider);
+        }
+        List<Driver> assignment;
+        try {
+            assignment = batchStrategy.assignDrivers(riders, vehicleType,
+                    driverService.getAvailableDrivers(vehicleType));
+        } catch (RuntimeException e) {
+            for (PendingRequest request : batch) {
+                request.result.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRequest request = batch.get(i);
+            Driver driver = assignment.get(i);
+            try {
+                if (driver != null && driverService.tryReserve(driver)) {
+                    // Releases the reservation itself if recording the ride fails
+                    request.result.complete(rideService.createAssignedRide(
+                            request.rider, request.distance, request.vehicleType, driver));
+                } else {
+                    // No candidate left in the batch graph, or the driver was taken outside the
+                    // batch; fall back to the single-request path
+                    request.result.complete(rideService.assignRide(
+                            request.rider, request.distance, request.vehicleType));
+                }
+            } catch (NoDriverAvailableException | RuntimeException e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        scheduler.shutdown();
+        flush();
+    }
+
+    private static class PendingRequest {
+        private final Rider rider;
+        private final double distance;
+        private final VehicleType vehicleType;
+        private final CompletableFuture<Ride> result = new CompletableFuture<>();
+
+        private PendingRequest(Rider rider, double distance, VehicleType vehicleType) {
+            this.rider = rider;
+            this.distance = distance;
+            this.vehicleType = vehicleType;
+        }
+    }
+}
@@ -1,44 +1,237 @@
 package com.airtribe.ridewise.service;
 
+import com.airtribe.ridewise.index.DriverPool;
+import com.airtribe.ridewise.index.DriverStore;
 import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.LocationPing;
+import com.airtribe.ridewise.model.VehicleType;
 import com.airtribe.ridewise.util.IdGenerator;
-import java.util.ArrayList;
-import java.util.HashMap;
+import com.airtribe.ridewise.util.IdInterner;
+import com.airtribe.ridewise.util.IntObjectMap;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DriverService {
-    private final Map<String, Driver> drivers = new HashMap<>();
+    private static final double DEFAULT_CELL_SIZE = 0.01;
 
-    public Driver registerDriver(String name, String location) {
+    // String ids are resolved to handles once, here; everything internal is keyed by handle
+    private final IdInterner handles = new IdInterner();
+    private final IntObjectMap<Driver> drivers = new IntObjectMap<>();
+    private final IntObjectMap<Driver> availableDrivers = new IntObjectMap<>();
+    private final Collection<Driver> allDriversView = drivers.values();
+    private final Collection<Driver> availableDriversView = availableDrivers.values();
+    private final Map<VehicleType, DriverPool> pools = new EnumMap<>(VehicleType.class);
+    private final DriverStore driverStore = new DriverStore();
+    private final List<RideEventListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean poolIndexing = true;
+
+    public DriverService() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public DriverService(double cellSize) {
+        for (VehicleType vehicleType : VehicleType.values()) {
+            pools.put(vehicleType, new DriverPool(cellSize));
+        }
+    }
+
+    public Driver registerDriver(String name, String location, double latitude, double longitude,
+                                 VehicleType vehicleType) {
         String id = IdGenerator.generateDriverId();
-        Driver driver = new Driver(id, name, location);
-        drivers.put(id, driver);
+        Driver driver = new Driver(id, name, location, latitude, longitude, vehicleType);
+        driver.setHandle(handles.intern(id));
+        drivers.put(driver.getHandle(), driver);
+        driverStore.add(driver);
+        refreshIndexes(driver);
+        for (RideEventListener listener : listeners) {
+            listener.driverRegistered(driver);
+        }
         return driver;
     }
 
+    // Re-inserts a driver rebuilt from the event log, without notifying listeners
+    public void restoreDriver(Driver driver) {
+        driver.setHandle(handles.intern(driver.getId()));
+        drivers.put(driver.getHandle(), driver);
+        driverStore.add(driver);
+        refreshIndexes(driver);
+        IdGenerator.advancePast(driver.getId());
+    }
+
+    // The per-type pools and activity heaps are maintained only while pool indexing is on. A
+    // dispatcher that keeps its own available-driver indexes, like ZoneDispatcher, turns it off
+    // so reservations and releases skip them; pool-backed strategies then find no drivers
+    // until it is turned back on, which rebuilds the pools from current availability.
+    public void setPoolIndexing(boolean enabled) {
+        synchronized (pools) {
+            poolIndexing = enabled;
+            for (Driver driver : allDriversView) {
+                synchronized (driver) {
+                    DriverPool pool = getPool(driver.getVehicleType());
+                    if (enabled && driver.isAvailable()) {
+                        pool.add(driver);
+                    } else {
+                        pool.remove(driver);
+                    }
+                }
+            }
+        }
+    }
+
+    public void addEventListener(RideEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeEventListener(RideEventListener listener) {
+        listeners.remove(listener);
+    }
+
     public void updateAvailability(String driverId, boolean available) {
-        Driver driver = drivers.get(driverId);
+        Driver driver = getDriverById(driverId);
         if (driver != null) {
+            updateAvailability(driver, available);
+        }
+    }
+
+    public void updateAvailability(Driver driver, boolean available) {
+        synchronized (driver) {
             driver.setAvailable(available);
+            refreshIndexes(driver);
+            for (RideEventListener listener : listeners) {
+                listener.driverAvailabilityChanged(driver, available);
+            }
         }
     }
 
-    public List<Driver> getAvailableDrivers() {
-        List<Driver> availableDrivers = new ArrayList<>();
-        for (Driver driver : drivers.values()) {
-            if (driver.isAvailable()) {
-                availableDrivers.add(driver);
+    public void updateLocation(String driverId, String location, double latitude, double longitude) {
+        Driver driver = getDriverById(driverId);
+        if (driver != null) {
+            synchronized (driver) {
+                driver.setCurrentLocation(location);
+                moveTo(driver, latitude, longitude);
             }
         }
-        return availableDrivers;
     }
 
-    public List<Driver> getAllDrivers() {
-        return new ArrayList<>(drivers.values());
+    // Applies a batch of coalesced pings in one pass; pings for unknown drivers are skipped.
+    // Returns the number applied.
+    public int applyLocations(Collection<LocationPing> pings) {
+        int applied = 0;
+        for (LocationPing ping : pings) {
+            Driver driver = getDriverById(ping.getDriverId());
+            if (driver != null) {
+                synchronized (driver) {
+                    moveTo(driver, ping.getLatitude(), ping.getLongitude());
+                }
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    // Claims the driver with a compare-and-set; losers should move on to another candidate.
+    // Listeners are notified under the driver's lock so they see transitions in order.
+    public boolean tryReserve(Driver driver) {
+        if (!driver.isAvailable()) {
+            return false;
+        }
+        synchronized (driver) {
+            if (!driver.tryReserve()) {
+                return false;
+            }
+            refreshIndexes(driver);
+            for (RideEventListener listener : listeners) {
+                listener.driverReserved(driver);
+            }
+        }
+        return true;
+    }
+
+    public void recordRideCompleted(String driverId) {
+        Driver driver = getDriverById(driverId);
+        if (driver != null) {
+            recordRideCompleted(driver);
+        }
+    }
+
+    public void recordRideCompleted(Driver driver) {
+        // Under the driver's lock, so a pool rebuilt concurrently keys the driver by this count
+        synchronized (driver) {
+            driver.incrementRidesCompleted();
+            if (poolIndexing) {
+                getPool(driver.getVehicleType()).getActivityHeap().update(driver);
+            }
+        }
+        driverStore.setRidesCompleted(driver.getHandle(), driver.getRidesCompleted());
+    }
+
+    // Live read-only view, kept in step with every availability transition
+    public Collection<Driver> getAvailableDrivers() {
+        return availableDriversView;
+    }
+
+    public Collection<Driver> getAvailableDrivers(VehicleType vehicleType) {
+        return getPool(vehicleType).getAvailableDrivers();
+    }
+
+    public Collection<Driver> getAllDrivers() {
+        return allDriversView;
     }
 
     public Driver getDriverById(String id) {
-        return drivers.get(id);
+        int handle = handles.find(id);
+        return handle >= 0 ? drivers.get(handle) : null;
+    }
+
+    public Driver getDriverByHandle(int handle) {
+        return drivers.get(handle);
+    }
+
+    public DriverPool getPool(VehicleType vehicleType) {
+        return pools.get(vehicleType);
+    }
+
+    public DriverStore getDriverStore() {
+        return driverStore;
+    }
+
+    // Caller holds the driver's lock. Only the spatial grid depends on position, so a move
+    // leaves the available set and activity heap alone.
+    private void moveTo(Driver driver, double latitude, double longitude) {
+        driver.setCoordinates(latitude, longitude);
+        driverStore.move(driver.getHandle(), latitude, longitude);
+        if (driver.isAvailable() && poolIndexing) {
+            getPool(driver.getVehicleType()).relocate(driver);
+        }
+        for (RideEventListener listener : listeners) {
+            listener.driverLocationChanged(driver);
+        }
+    }
+
+    // Only available drivers are kept in the available set and their vehicle type's pool.
+    // Updates for one driver are serialised on that driver and always reflect its latest
+    // availability, so concurrent transitions cannot leave the indexes behind. The pool flag
+    // is read under the same lock setPoolIndexing takes per driver, so a toggle never strands
+    // a driver in a switched-off pool.
+    private void refreshIndexes(Driver driver) {
+        synchronized (driver) {
+            driverStore.setAvailable(driver.getHandle(), driver.isAvailable());
+            if (driver.isAvailable()) {
+                availableDrivers.put(driver.getHandle(), driver);
+            } else {
+                availableDrivers.remove(driver.getHandle());
+            }
+            if (poolIndexing) {
+                DriverPool pool = getPool(driver.getVehicleType());
+                if (driver.isAvailable()) {
+                    pool.add(driver);
+                } else {
+                    pool.remove(driver);
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+package com.airtribe.ridewise.service;
+
+import com.airtribe.ridewise.index.RoadGraph;
+import com.airtribe.ridewise.util.LongHeap;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Road travel times over a memory-mapped RoadGraph. Point-to-point queries run the contraction
+// hierarchy search: Dijkstra from the source along upward out-arcs and from the target along
+// upward in-arcs, each side stopping once its frontier is no closer than the best meeting
+// found. A node is not expanded when a higher node already reaches it more cheaply (stall on
+// demand): its label is not a shortest distance, so nothing found through it can be either.
+// One-to-many queries instead run a single Dijkstra backwards from the target over the full
+// graph, which stops once every source is settled or the frontier passes the cutoff.
+// Search state (four node-sized arrays) is borrowed from a bounded pool of idle searches and
+// returned after the query, so it is reused across threads, including short-lived virtual
+// threads; the pool makes a new search when empty and drops a returned one when full. Labels
+// are invalidated by bumping a stamp rather than clearing arrays, so a query costs only the
+// nodes it touches.
+public class EtaService {
+    public static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final RoadGraph graph;
+    private final BlockingQueue<Search> idleSearches;
+
+    public EtaService(RoadGraph graph) {
+        this(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    // maxIdleSearches bounds the memory held between queries, not the number of concurrent ones
+    public EtaService(RoadGraph graph, int maxIdleSearches) {
+        if (maxIdleSearches <= 0) {
+            throw new IllegalArgumentException("Idle search pool size must be positive");
+        }
+        this.graph = graph;
+        this.idleSearches = new ArrayBlockingQueue<>(maxIdleSearches);
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public int nearestNode(double latitude, double longitude) {
+        return graph.nearestNode(latitude, longitude);
+    }
+
+    // Snaps both points to their nearest road nodes
+    public long etaMillis(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        int source = nearestNode(fromLatitude, fromLongitude);
+        int target = nearestNode(toLatitude, toLongitude);
+        if (source < 0 || target < 0) {
+            return UNREACHABLE;
+        }
+        return etaMillis(source, target);
+    }
+
+    public long etaMillis(int source, int target) {
+        Search search = borrowSearch();
+        try {
+            return search.pointToPoint(source, target);
+        } finally {
+            idleSearches.offer(search);
+        }
+    }
+
+    // ETA from each source node to target, or UNREACHABLE for sources that are negative or
+    // farther than cutoffMillis
+    public long[] etaMillisToTarget(int[] sources, int target, long cutoffMillis) {
+        long[] etas = new long[sources.length];
+        Search search = borrowSearch();
+        try {
+            search.oneToMany(sources, target, cutoffMillis, etas);
+        } finally {
+            idleSearches.offer(search);
+        }
+        return etas;
+    }
+
+    private Search borrowSearch() {
+        Search search = idleSearches.poll();
+        return search != null ? search : new Search();
+    }
+
+    private final class Search {
+        private final int[] forwardDistance = new int[graph.nodeCount()];
+        private final int[] backwardDistance = new int[graph.nodeCount()];
+        private final int[] forwardSeen = new int[graph.nodeCount()];
+        private final int[] backwardSeen = new int[graph.nodeCount()];
+        private final LongHeap forward = new LongHeap();
+        private final LongHeap backward = new LongHeap();
+        private int stamp;
+        private long best;
+
+        private void nextStamp() {
+            if (++stamp == 0) {
+                Arrays.fill(forwardSeen, 0);
+                Arrays.fill(backwardSeen, 0);
+                stamp = 1;
+            }
+        }
+
+        private long pointToPoint(int source, int target) {
+            if (source == target) {
+                return 0;
+            }
+            nextStamp();
+            best = UNREACHABLE;
+            forward.clear();
+            backward.clear();
+            forwardSeen[source] = stamp;
+            forwardDistance[source] = 0;
+            forward.push(LongHeap.pack(0, source));
+            backwardSeen[target] = stamp;
+            backwardDistance[target] = 0;
+            backward.push(LongHeap.pack(0, target));
+
+            while (true) {
+                boolean forwardOpen = !forward.isEmpty() && LongHeap.distanceOf(forward.peek()) < best;
+                boolean backwardOpen = !backward.isEmpty() && LongHeap.distanceOf(backward.peek()) < best;
+                if (forwardOpen && (!backwardOpen || forward.peek() <= backward.peek())) {
+                    expandForward();
+                } else if (backwardOpen) {
+                    expandBackward();
+                } else {
+                    return best;
+                }
+            }
+        }
+
+        // Reuses the forward labels to mark sources: forwardDistance is -1 until settled
+        private void oneToMany(int[] sources, int target, long cutoffMillis, long[] etas) {
+            nextStamp();
+            backward.clear();
+            int remaining = 0;
+            for (int source : sources) {
+                if (source >= 0 && forwardSeen[source] != stamp) {
+                    forwardSeen[source] = stamp;
+                    forwardDistance[source] = -1;
+                    remaining++;
+                }
+            }
+            if (target >= 0) {
+                backwardSeen[target] = stamp;
+                backwardDistance[target] = 0;
+                backward.push(LongHeap.pack(0, target));
+            }
+            while (remaining > 0 && !backward.isEmpty()) {
+                long entry = backward.pop();
+                int node = LongHeap.nodeOf(entry);
+                int distance = LongHeap.distanceOf(entry);
+                if (distance > cutoffMillis) {
+                    break;
+                }
+                if (distance != backwardDistance[node]) {
+                    continue;
+                }
+                if (forwardSeen[node] == stamp && forwardDistance[node] < 0) {
+                    forwardDistance[node] = distance;
+                    remaining--;
+                }
+                for (int arc = graph.firstIn(node); arc < graph.firstIn(node + 1); arc++) {
+                    int previous = graph.inTail(arc);
+                    int candidate = distance + graph.inMillis(arc);
+                    if (backwardSeen[previous] != stamp || candidate < backwardDistance[previous]) {
+                        backwardSeen[previous] = stamp;
+                        backwardDistance[previous] = candidate;
+                        backward.push(LongHeap.pack(candidate, previous));
+                    }
+                }
+            }
+            for (int i = 0; i < sources.length; i++) {
+                int source = sources[i];
+                etas[i] = source >= 0 && forwardDistance[source] >= 0 ? forwardDistance[source] : UNREACHABLE;
+            }
+        }
+
+        private void expandForward() {
+            long entry = forward.pop();
+            int node = LongHeap.nodeOf(entry);
+            int distance = LongHeap.distanceOf(entry);
+            if (distance != forwardDistance[node]) {
+                return;
+            }
+            for (int arc = graph.upwardFirstIn(node); arc < graph.upwardFirstIn(node + 1); arc++) {
+                int higher = graph.upwardTail(arc);
+                if (forwardSeen[higher] == stamp && forwardDistance[higher] + graph.upwardInMillis(arc) < distance) {
+                    return;
+                }
+            }
+            for (int arc = graph.upwardFirstOut(node); arc < graph.upwardFirstOut(node + 1); arc++) {
+                int next = graph.upwardHead(arc);
+                int candidate = distance + graph.upwardOutMillis(arc);
+                if (forwardSeen[next] != stamp || candidate < forwardDistance[next]) {
+                    forwardSeen[next] = stamp;
+                    forwardDistance[next] = candidate;
+                    forward.push(LongHeap.pack(candidate, next));
+                    if (backwardSeen[next] == stamp) {
+                        best = Math.min(best, (long) candidate + backwardDistance[next]);
+                    }
+                }
+            }
+        }
+
+        private void expandBackward() {
+            long entry = backward.pop();
+            int node = LongHeap.nodeOf(entry);
+            int distance = LongHeap.distanceOf(entry);
+            if (distance != backwardDistance[node]) {
+                return;
+            }
+            for (int arc = graph.upwardFirstOut(node); arc < graph.upwardFirstOut(node + 1); arc++) {
+                int higher = graph.upwardHead(arc);
+                if (backwardSeen[higher] == stamp && backwardDistance[higher] + graph.upwardOutMillis(arc) < distance) {
+                    return;
+                }
+            }
+            for (int arc = graph.upwardFirstIn(node); arc < graph.upwardFirstIn(node + 1); arc++) {
+                int previous = graph.upwardTail(arc);
+                int candidate = distance + graph.upwardInMillis(arc);
+                if (backwardSeen[previous] != stamp || candidate < backwardDistance[previous]) {
+                    backwardSeen[previous] = stamp;
+                    backwardDistance[previous] = candidate;
+                    backward.push(LongHeap.pack(candidate, previous));
+                    if (forwardSeen[previous] == stamp) {
+                        best = Math.min(best, (long) candidate + forwardDistance[previous]);
+                    }
+                }
+            }
+        }
+    }
+}
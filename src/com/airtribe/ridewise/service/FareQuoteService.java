@@ -0,0 +1,46 @@
+package com.airtribe.ridewise.service;
+
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.strategy.TableFareStrategy;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fare estimates for (vehicle type, distance, zone) without building a Ride. A quote prices the
+// exact distance through the same strategy that charges the ride, so an estimate matches the
+// fare charged for that trip under the same rates. Quotes are not cached: every in-tree
+// strategy is a table lookup plus arithmetic, which is cheaper than checking a cache entry.
+public class FareQuoteService {
+    // Latency is timed on one quote in 64; two clock reads would cost more than a quote
+    private static final int LATENCY_SAMPLE_MASK = 63;
+
+    private final TableFareStrategy fareStrategy;
+    private final LongAdder quotes = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder latencySamples = new LongAdder();
+
+    public FareQuoteService(TableFareStrategy fareStrategy) {
+        this.fareStrategy = fareStrategy;
+    }
+
+    // Fare in minor currency units
+    public long quote(VehicleType vehicleType, double distance, int zone) {
+        boolean timed = (ThreadLocalRandom.current().nextInt() & LATENCY_SAMPLE_MASK) == 0;
+        long started = timed ? System.nanoTime() : 0L;
+        long fare = fareStrategy.quote(vehicleType, distance, zone);
+        quotes.increment();
+        if (timed) {
+            latencyNanos.add(System.nanoTime() - started);
+            latencySamples.increment();
+        }
+        return fare;
+    }
+
+    public long getQuoteCount() {
+        return quotes.sum();
+    }
+
+    public double getAverageLatencyNanos() {
+        long samples = latencySamples.sum();
+        return samples == 0 ? 0.0 : latencyNanos.sum() / (double) samples;
+    }
+}
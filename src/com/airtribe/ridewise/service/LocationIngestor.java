@@ -0,0 +1,115 @@
+package com.airtribe.ridewise.service;
+
+import com.airtribe.ridewise.model.LocationPing;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Buffers GPS pings and applies them to DriverService once per tick. Pings for the same driver
+// within a tick are coalesced, keeping the one with the latest timestamp (ties go to the later
+// arrival), so the spatial indexes are touched at most once per driver per tick. A ping older
+// than one already applied in an earlier tick arrived late and is dropped.
+public class LocationIngestor implements AutoCloseable {
+    private final DriverService driverService;
+    private final Map<String, LocationPing> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder received = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder failedTicks = new LongAdder();
+    // Timestamp of the last ping applied per driver; only touched inside tick()
+    private final Map<String, Long> lastApplied = new HashMap<>();
+
+    public LocationIngestor(DriverService driverService, long tickMillis) {
+        this.driverService = driverService;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "location-ingestor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::scheduledTick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void submit(LocationPing ping) {
+        received.increment();
+        pending.merge(ping.getDriverId(), ping, (current, incoming) -> {
+            coalesced.increment();
+            return incoming.getTimestampMillis() >= current.getTimestampMillis() ? incoming : current;
+        });
+    }
+
+    public void submitAll(Collection<LocationPing> pings) {
+        for (LocationPing ping : pings) {
+            submit(ping);
+        }
+    }
+
+    // Drains entry by entry rather than swapping the map, so a ping racing with the drain
+    // lands in this tick or the next one and is never lost
+    public synchronized int tick() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<LocationPing> batch = new ArrayList<>(pending.size());
+        for (String driverId : pending.keySet()) {
+            LocationPing ping = pending.remove(driverId);
+            if (ping == null) {
+                continue;
+            }
+            Long previous = lastApplied.get(driverId);
+            if (previous != null && ping.getTimestampMillis() < previous) {
+                stale.increment();
+                continue;
+            }
+            lastApplied.put(driverId, ping.getTimestampMillis());
+            batch.add(ping);
+        }
+        int count = driverService.applyLocations(batch);
+        applied.add(count);
+        return count;
+    }
+
+    // An exception escaping a periodic task cancels all later runs, so a failed tick is only
+    // counted; its pings are lost and the next tick carries on
+    private void scheduledTick() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            failedTicks.increment();
+        }
+    }
+
+    public long getPingsReceived() {
+        return received.sum();
+    }
+
+    public long getPingsCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getPingsApplied() {
+        return applied.sum();
+    }
+
+    public long getPingsStale() {
+        return stale.sum();
+    }
+
+    public long getFailedTicks() {
+        return failedTicks.sum();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        tick();
+    }
+}
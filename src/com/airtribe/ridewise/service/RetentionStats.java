@@ -0,0 +1,54 @@
+package com.airtribe.ridewise.service;
+
+public class RetentionStats {
+    private final int hotRides;
+    private final long hotBytesEstimate;
+    private final int archivedRides;
+    private final long archivedBytes;
+    private final long droppedRides;
+    private final int unarchivableRides;
+
+    public RetentionStats(int hotRides, long hotBytesEstimate, int archivedRides, long archivedBytes,
+                          long droppedRides, int unarchivableRides) {
+        this.hotRides = hotRides;
+        this.hotBytesEstimate = hotBytesEstimate;
+        this.archivedRides = archivedRides;
+        this.archivedBytes = archivedBytes;
+        this.droppedRides = droppedRides;
+        this.unarchivableRides = unarchivableRides;
+    }
+
+    public int getHotRides() {
+        return hotRides;
+    }
+
+    // Estimated from a fixed per-ride footprint; the hot map holds object graphs, not bytes
+    public long getHotBytesEstimate() {
+        return hotBytesEstimate;
+    }
+
+    public int getArchivedRides() {
+        return archivedRides;
+    }
+
+    public long getArchivedBytes() {
+        return archivedBytes;
+    }
+
+    // Aged out of the archive with its oldest segments
+    public long getDroppedRides() {
+        return droppedRides;
+    }
+
+    // Rejected by the archive as too large, and kept hot instead
+    public int getUnarchivableRides() {
+        return unarchivableRides;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionStats{hot=" + hotRides + " (~" + hotBytesEstimate / 1024 + " KiB)" +
+               ", archived=" + archivedRides + " (" + archivedBytes / 1024 + " KiB)" +
+               ", dropped=" + droppedRides + ", unarchivable=" + unarchivableRides + "}";
+    }
+}
@@ -0,0 +1,45 @@
+package com.airtribe.ridewise.service;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Ride;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+
+// Callbacks for state changes made by the services. They run on the thread that made the
+// change, after it has been applied, so implementations should be quick.
+public interface RideEventListener {
+    default void riderRegistered(Rider rider) {
+    }
+
+    default void driverRegistered(Driver driver) {
+    }
+
+    default void driverAvailabilityChanged(Driver driver, boolean available) {
+    }
+
+    // A dispatcher claimed the driver for a ride it is about to record; listeners that only
+    // track availability see the driver going busy
+    default void driverReserved(Driver driver) {
+        driverAvailabilityChanged(driver, false);
+    }
+
+    default void driverLocationChanged(Driver driver) {
+    }
+
+    // A rider asked for a ride, fired once when the request arrives whether it is served at once,
+    // queued by a dispatcher or fails for lack of drivers
+    default void rideDemanded(Rider rider, VehicleType vehicleType) {
+    }
+
+    default void rideRequested(Ride ride) {
+    }
+
+    default void rideAssigned(Ride ride) {
+    }
+
+    default void rideCompleted(Ride ride) {
+    }
+
+    default void rideCancelled(Ride ride) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.airtribe.ridewise.service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs RideService eviction on a fixed schedule
+public class RideRetention implements AutoCloseable {
+    private final RideService rideService;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder failedSweeps = new LongAdder();
+    private volatile RuntimeException lastFailure;
+
+    public RideRetention(RideService rideService, long sweepIntervalMillis) {
+        this.rideService = rideService;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ride-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledSweep,
+                sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // An exception escaping a periodic task cancels all later runs, and the hot ride maps would
+    // then grow without bound, so a failed sweep is only recorded; the next one retries
+    private void scheduledSweep() {
+        try {
+            rideService.evictTerminalRides();
+        } catch (RuntimeException e) {
+            failedSweeps.increment();
+            lastFailure = e;
+        }
+    }
+
+    public long getFailedSweeps() {
+        return failedSweeps.sum();
+    }
+
+    // The most recent sweep failure, or null if none has failed
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+}
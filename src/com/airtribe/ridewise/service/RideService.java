@@ -1,20 +1,46 @@
 package com.airtribe.ridewise.service;
 
+import com.airtribe.ridewise.index.RideIndex;
 import com.airtribe.ridewise.model.*;
+import com.airtribe.ridewise.persistence.RideArchive;
 import com.airtribe.ridewise.strategy.FareStrategy;
 import com.airtribe.ridewise.strategy.RideMatchingStrategy;
 import com.airtribe.ridewise.exception.NoDriverAvailableException;
 import com.airtribe.ridewise.util.IdGenerator;
-import java.util.ArrayList;
-import java.util.HashMap;
+import com.airtribe.ridewise.util.IdInterner;
+import com.airtribe.ridewise.util.IntObjectMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RideService {
-    private final Map<String, Ride> rides = new HashMap<>();
+    private static final int MAX_RESERVATION_ATTEMPTS = 32;
+    private static final int RESERVATION_CANDIDATES = 8;
+    // Ride, receipt, map node and index entries; used only for reporting
+    private static final long HOT_RIDE_BYTES_ESTIMATE = 320;
+
+    // Evicted rides give up their handle, so the interner only ever holds hot rides
+    private final IdInterner handles = new IdInterner();
+    private final IntObjectMap<Ride> rides = new IntObjectMap<>();
+    private final Collection<Ride> ridesView = rides.values();
+    private final RideIndex rideIndex = new RideIndex();
     private final RideMatchingStrategy matchingStrategy;
     private final FareStrategy fareStrategy;
     private final DriverService driverService;
+    private final List<RideEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<VehicleType, VehicleType[]> fallbackOrder = new ConcurrentHashMap<>();
+    // Terminal rides in the order they ended, oldest first
+    private final ConcurrentLinkedQueue<Ride> terminalRides = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger terminalCount = new AtomicInteger();
+    private volatile RideArchive archive;
+    private volatile long maxTerminalAgeMillis = Long.MAX_VALUE;
+    private volatile int maxHotTerminalRides = Integer.MAX_VALUE;
+    // Written only by evictTerminalRides, under its lock
+    private volatile int unarchivableRides;
 
     public RideService(RideMatchingStrategy matchingStrategy, 
                       FareStrategy fareStrategy,
@@ -24,50 +50,278 @@ public class RideService {
         this.driverService = driverService;
     }
 
+    // Pools after the requested type are probed in order, and only while the earlier ones are
+    // empty or fully claimed by concurrent requests. The ride keeps the requested type for pricing.
+    public void setFallbackOrder(VehicleType requested, VehicleType... fallbacks) {
+        fallbackOrder.put(requested, fallbacks.clone());
+    }
+
+    // Terminal rides that ended more than maxAgeMillis ago, or that exceed maxHotTerminalRides,
+    // are moved to the archive by evictTerminalRides. Lookups by id fall through to the archive;
+    // the list and index views cover hot rides only.
+    public void enableRetention(RideArchive archive, long maxAgeMillis, int maxHotTerminalRides) {
+        this.maxTerminalAgeMillis = maxAgeMillis;
+        this.maxHotTerminalRides = maxHotTerminalRides;
+        this.archive = archive;
+    }
+
+    VehicleType[] getFallbackOrder(VehicleType requested) {
+        VehicleType[] fallbacks = fallbackOrder.get(requested);
+        return fallbacks != null ? fallbacks : new VehicleType[0];
+    }
+
     public Ride requestRide(Rider rider, double distance, VehicleType vehicleType) throws NoDriverAvailableException {
+        recordDemand(rider, vehicleType);
+        return assignRide(rider, distance, vehicleType);
+    }
+
+    // Dispatchers call this once when a request enters their queue, then retry through assignRide
+    void recordDemand(Rider rider, VehicleType vehicleType) {
+        for (RideEventListener listener : listeners) {
+            listener.rideDemanded(rider, vehicleType);
+        }
+    }
+
+    Ride assignRide(Rider rider, double distance, VehicleType vehicleType) throws NoDriverAvailableException {
+        VehicleType[] fallbacks = fallbackOrder.get(vehicleType);
+        if (fallbacks == null || !driverService.getPool(vehicleType).isEmpty()) {
+            try {
+                return requestFromPool(rider, distance, vehicleType, vehicleType);
+            } catch (NoDriverAvailableException e) {
+                if (fallbacks == null) {
+                    throw e;
+                }
+            }
+        }
+        for (VehicleType fallback : fallbacks) {
+            if (driverService.getPool(fallback).isEmpty()) {
+                continue;
+            }
+            try {
+                return requestFromPool(rider, distance, vehicleType, fallback);
+            } catch (NoDriverAvailableException e) {
+                // Pool drained while we were matching; try the next one
+            }
+        }
+        throw new NoDriverAvailableException("No available " + vehicleType + " drivers found nearby");
+    }
+
+    // Matching runs without a global lock; the chosen driver is claimed with a compare-and-set.
+    // A dispatcher that loses the race asks for a candidate list once and falls through it,
+    // searching again only when every candidate on it is taken. The first attempt takes a
+    // single driver because an uncontended claim is the common case and a k-search costs more.
+    private Ride requestFromPool(Rider rider, double distance, VehicleType requestedType, VehicleType poolType)
+            throws NoDriverAvailableException {
+        Driver first = matchingStrategy.findDriver(rider, poolType, driverService.getAvailableDrivers(poolType));
+        if (driverService.tryReserve(first)) {
+            return createAssignedRide(rider, distance, requestedType, first);
+        }
+        int attempts = 1;
+        while (attempts < MAX_RESERVATION_ATTEMPTS) {
+            List<Driver> candidates = matchingStrategy.findCandidates(rider, poolType,
+                    driverService.getAvailableDrivers(poolType), RESERVATION_CANDIDATES);
+            for (Driver candidate : candidates) {
+                if (driverService.tryReserve(candidate)) {
+                    return createAssignedRide(rider, distance, requestedType, candidate);
+                }
+                if (++attempts == MAX_RESERVATION_ATTEMPTS) {
+                    break;
+                }
+            }
+        }
+        throw new NoDriverAvailableException("No driver could be reserved after " + MAX_RESERVATION_ATTEMPTS + " attempts");
+    }
+
+    // Records a ride for a driver the caller has already reserved through DriverService. If a
+    // listener throws (say the event log failed), the ride is dropped again and the driver's
+    // reservation released before the exception reaches the caller.
+    Ride createAssignedRide(Rider rider, double distance, VehicleType vehicleType, Driver driver) {
         String rideId = IdGenerator.generateRideId();
         Ride ride = new Ride(rideId, rider, distance, vehicleType);
-        
-        Driver assignedDriver = matchingStrategy.findDriver(rider, driverService.getAllDrivers());
-        
-        ride.setDriver(assignedDriver);
-        ride.setStatus(RideStatus.ASSIGNED);
-        assignedDriver.setAvailable(false);
-        
-        rides.put(rideId, ride);
-        return ride;
+        try {
+            for (RideEventListener listener : listeners) {
+                listener.rideRequested(ride);
+            }
+            ride.setDriver(driver);
+            ride.setStatus(RideStatus.ASSIGNED);
+
+            ride.setHandle(handles.intern(rideId));
+            rides.put(ride.getHandle(), ride);
+            rideIndex.add(ride);
+            for (RideEventListener listener : listeners) {
+                listener.rideAssigned(ride);
+            }
+            return ride;
+        } catch (RuntimeException e) {
+            if (ride.getHandle() >= 0) {
+                rides.remove(ride.getHandle());
+                handles.remove(rideId);
+                rideIndex.remove(ride);
+            }
+            try {
+                driverService.updateAvailability(driver, true);
+            } catch (RuntimeException releaseFailure) {
+                e.addSuppressed(releaseFailure);
+            }
+            throw e;
+        }
     }
 
     public void completeRide(String rideId) {
-        Ride ride = rides.get(rideId);
-        if (ride != null && ride.getStatus() == RideStatus.ASSIGNED) {
-            double fare = fareStrategy.calculateFare(ride);
-            FareReceipt receipt = new FareReceipt(rideId, fare);
-            
-            ride.setFareReceipt(receipt);
-            ride.setStatus(RideStatus.COMPLETED);
-            
-            Driver driver = ride.getDriver();
-            driver.setAvailable(true);
-            driver.incrementRidesCompleted();
+        Ride ride = getHotRide(rideId);
+        if (ride == null) {
+            return;
+        }
+        synchronized (ride) {
+            if (ride.getStatus() == RideStatus.ASSIGNED) {
+                long fare = fareStrategy.calculateFare(ride);
+                FareReceipt receipt = new FareReceipt(rideId, fare);
+                
+                ride.setFareReceipt(receipt);
+                transition(ride, RideStatus.COMPLETED);
+                
+                Driver driver = ride.getDriver();
+                driverService.recordRideCompleted(driver);
+                for (RideEventListener listener : listeners) {
+                    listener.rideCompleted(ride);
+                }
+                driverService.updateAvailability(driver, true);
+            }
         }
     }
 
     public void cancelRide(String rideId) {
-        Ride ride = rides.get(rideId);
-        if (ride != null && ride.getStatus() != RideStatus.COMPLETED) {
-            ride.setStatus(RideStatus.CANCELLED);
-            if (ride.getDriver() != null) {
-                ride.getDriver().setAvailable(true);
+        Ride ride = getHotRide(rideId);
+        if (ride == null) {
+            return;
+        }
+        synchronized (ride) {
+            if (ride.getStatus() == RideStatus.REQUESTED || ride.getStatus() == RideStatus.ASSIGNED) {
+                transition(ride, RideStatus.CANCELLED);
+                for (RideEventListener listener : listeners) {
+                    listener.rideCancelled(ride);
+                }
+                if (ride.getDriver() != null) {
+                    driverService.updateAvailability(ride.getDriver(), true);
+                }
             }
         }
     }
 
+    // Re-inserts a ride rebuilt from the event log, without notifying listeners
+    public void restoreRide(Ride ride) {
+        ride.setHandle(handles.intern(ride.getId()));
+        rides.put(ride.getHandle(), ride);
+        rideIndex.add(ride);
+        if (isTerminal(ride.getStatus())) {
+            if (ride.getEndedAtMillis() == 0) {
+                ride.setEndedAtMillis(System.currentTimeMillis());
+            }
+            terminalRides.add(ride);
+            terminalCount.incrementAndGet();
+        }
+        IdGenerator.advancePast(ride.getId());
+    }
+
+    public void addEventListener(RideEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeEventListener(RideEventListener listener) {
+        listeners.remove(listener);
+    }
+
     public Ride getRideById(String rideId) {
-        return rides.get(rideId);
+        Ride ride = getHotRide(rideId);
+        RideArchive archived = archive;
+        if (ride == null && archived != null) {
+            ride = archived.find(rideId);
+        }
+        return ride;
+    }
+
+    // Hot rides only; archived rides have no handle
+    public Ride getRideByHandle(int handle) {
+        return rides.get(handle);
+    }
+
+    // Archives before removing from the hot map, so a concurrent lookup always finds the ride
+    // in one of the two
+    public synchronized int evictTerminalRides() {
+        RideArchive archived = archive;
+        if (archived == null) {
+            return 0;
+        }
+        long cutoff = System.currentTimeMillis() - maxTerminalAgeMillis;
+        int evicted = 0;
+        Ride oldest;
+        while ((oldest = terminalRides.peek()) != null
+                && (terminalCount.get() > maxHotTerminalRides || oldest.getEndedAtMillis() <= cutoff)) {
+            // Archived before it leaves the queue, so a failed append is retried next sweep. A
+            // ride the archive rejects outright can never be archived; it stays hot.
+            try {
+                archived.append(oldest);
+            } catch (IllegalArgumentException e) {
+                terminalRides.poll();
+                terminalCount.decrementAndGet();
+                unarchivableRides++;
+                continue;
+            }
+            terminalRides.poll();
+            terminalCount.decrementAndGet();
+            rides.remove(oldest.getHandle());
+            handles.remove(oldest.getId());
+            rideIndex.remove(oldest);
+            evicted++;
+        }
+        return evicted;
+    }
+
+    public RetentionStats getRetentionStats() {
+        RideArchive archived = archive;
+        int hot = rides.size();
+        return new RetentionStats(hot, hot * HOT_RIDE_BYTES_ESTIMATE,
+                archived != null ? archived.size() : 0, archived != null ? archived.memoryBytes() : 0,
+                archived != null ? archived.droppedRides() : 0, unarchivableRides);
+    }
+
+    // The collections below are live read-only views, not copies
+    public Collection<Ride> getAllRides() {
+        return ridesView;
+    }
+
+    public Collection<Ride> getRidesByRider(Rider rider) {
+        return rideIndex.getByRider(rider.getHandle());
+    }
+
+    public Collection<Ride> getRidesByDriver(Driver driver) {
+        return rideIndex.getByDriver(driver.getHandle());
+    }
+
+    public Collection<Ride> getRidesByStatus(RideStatus status) {
+        return rideIndex.getByStatus(status);
+    }
+
+    private Ride getHotRide(String rideId) {
+        int handle = handles.find(rideId);
+        return handle >= 0 ? rides.get(handle) : null;
+    }
+
+    // Caller holds the ride's lock
+    private void transition(Ride ride, RideStatus status) {
+        RideStatus previous = ride.getStatus();
+        if (isTerminal(status)) {
+            ride.setEndedAtMillis(System.currentTimeMillis());
+        }
+        ride.setStatus(status);
+        rideIndex.statusChanged(ride, previous);
+        if (isTerminal(status)) {
+            terminalRides.add(ride);
+            terminalCount.incrementAndGet();
+        }
     }
 
-    public List<Ride> getAllRides() {
-        return new ArrayList<>(rides.values());
+    private static boolean isTerminal(RideStatus status) {
+        return status == RideStatus.COMPLETED || status == RideStatus.CANCELLED;
     }
-}
\ No newline at end of file
+}
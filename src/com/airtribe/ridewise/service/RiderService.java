@@ -2,24 +2,54 @@ package com.airtribe.ridewise.service;
 
 import com.airtribe.ridewise.model.Rider;
 import com.airtribe.ridewise.util.IdGenerator;
+import com.airtribe.ridewise.util.IdInterner;
+import com.airtribe.ridewise.util.IntObjectMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class RiderService {
-    private final Map<String, Rider> riders = new HashMap<>();
+    private final IdInterner handles = new IdInterner();
+    private final IntObjectMap<Rider> riders = new IntObjectMap<>();
+    private final List<RideEventListener> listeners = new CopyOnWriteArrayList<>();
 
-    public Rider registerRider(String name, String location) {
+    public Rider registerRider(String name, String location, double latitude, double longitude) {
         String id = IdGenerator.generateRiderId();
-        Rider rider = new Rider(id, name, location);
-        riders.put(id, rider);
+        Rider rider = new Rider(id, name, location, latitude, longitude);
+        rider.setHandle(handles.intern(id));
+        riders.put(rider.getHandle(), rider);
+        for (RideEventListener listener : listeners) {
+            listener.riderRegistered(rider);
+        }
         return rider;
     }
 
+    // Re-inserts a rider rebuilt from the event log, without notifying listeners
+    public void restoreRider(Rider rider) {
+        rider.setHandle(handles.intern(rider.getId()));
+        riders.put(rider.getHandle(), rider);
+        IdGenerator.advancePast(rider.getId());
+    }
+
+    public void addEventListener(RideEventListener listener) {
+        listeners.add(listener);
+    }
+
     public Rider getRiderById(String id) {
-        return riders.get(id);
+        int handle = handles.find(id);
+        return handle >= 0 ? riders.get(handle) : null;
+    }
+
+    public Rider getRiderByHandle(int handle) {
+        return riders.get(handle);
     }
 
     public Map<String, Rider> getAllRiders() {
-        return new HashMap<>(riders);
+        Map<String, Rider> copy = new HashMap<>();
+        for (Rider rider : riders.values()) {
+            copy.put(rider.getId(), rider);
+        }
+        return copy;
     }
-}
\ No newline at end of file
+}
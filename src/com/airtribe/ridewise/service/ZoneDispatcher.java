@@ -0,0 +1,369 @@
+package com.airtribe.ridewise.service;
+
+import com.airtribe.ridewise.index.SpatialGridIndex;
+import com.airtribe.ridewise.index.ZoneGrid;
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Ride;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import com.airtribe.ridewise.util.GeoDistance;
+import com.airtribe.ridewise.util.IntIntMap;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Shards dispatch by geographic zone. Each zone has one worker thread that alone mutates the
+// zone's driver indexes and waiting riders, so searching inside a zone takes no zone lock.
+// While the dispatcher runs, the zones' indexes are the only available-driver indexes:
+// DriverService's per-type pools and activity heaps are switched off, so a reservation or
+// release touches the driver's own lock, the striped handle maps and the owning zone's mailbox,
+// and no monitor every zone shares. Other zones may read a neighbour's index (it tolerates
+// concurrent readers) to serve riders near a border, and the driver CAS in DriverService
+// settles any race on the same driver. Drivers that move or change availability are handed to
+// the owning zone through its mailbox. Only a driver that becomes available, or crosses into a
+// zone, wakes that zone and its neighbours; a periodic sweep expires overdue riders and retries
+// the rest, which also reaches drivers beyond the neighbourhood.
+public class ZoneDispatcher implements RideEventListener, AutoCloseable {
+    private static final int MAX_RESERVATION_ATTEMPTS = 8;
+    private static final long SWEEP_MILLIS = 20;
+    private static final int VEHICLE_TYPES = VehicleType.values().length;
+
+    private final ZoneGrid zoneGrid;
+    private final RideService rideService;
+    private final DriverService driverService;
+    private final ZoneShard[] shards;
+    // Owning zone by driver handle
+    private final IntIntMap driverZones = new IntIntMap(-1);
+    private final ScheduledExecutorService timer;
+    private volatile boolean closed;
+
+    public ZoneDispatcher(ZoneGrid zoneGrid, RideService rideService, DriverService driverService, double cellSize) {
+        this.zoneGrid = zoneGrid;
+        this.rideService = rideService;
+        this.driverService = driverService;
+        this.shards = new ZoneShard[zoneGrid.zoneCount()];
+        for (int zone = 0; zone < shards.length; zone++) {
+            shards[zone] = new ZoneShard(zone, cellSize, driverService);
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zone-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        driverService.setPoolIndexing(false);
+        driverService.addEventListener(this);
+        for (Driver driver : driverService.getAllDrivers()) {
+            route(driver, true);
+        }
+        timer.scheduleAtFixedRate(this::sweep, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<Ride> requestRide(Rider rider, double distance, VehicleType vehicleType, Duration maxWait) {
+        ZoneRequest request = new ZoneRequest(rider, distance, vehicleType, System.nanoTime() + maxWait.toNanos());
+        rideService.recordDemand(rider, vehicleType);
+        ZoneShard shard = shards[zoneGrid.zoneOf(rider.getLatitude(), rider.getLongitude())];
+        try {
+            shard.worker.execute(() -> shard.match(request));
+        } catch (RejectedExecutionException e) {
+            request.result.completeExceptionally(new NoDriverAvailableException("Dispatcher closed"));
+        }
+        return request.result;
+    }
+
+    public int getZoneCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void driverRegistered(Driver driver) {
+        route(driver, true);
+    }
+
+    @Override
+    public void driverAvailabilityChanged(Driver driver, boolean available) {
+        route(driver, available);
+    }
+
+    // Keeps busy drivers out of the zone's index, so searches do not step over them
+    @Override
+    public void driverReserved(Driver driver) {
+        route(driver, false);
+    }
+
+    // A plain ping only moves the driver within its zone's index
+    @Override
+    public void driverLocationChanged(Driver driver) {
+        route(driver, false);
+    }
+
+    // Hands available-driver indexing back to DriverService's pools
+    @Override
+    public void close() {
+        closed = true;
+        driverService.removeEventListener(this);
+        timer.shutdownNow();
+        // The sweeper is gone, so waiting riders are failed rather than left hanging
+        for (ZoneShard shard : shards) {
+            post(shard, shard::failWaiting);
+            shard.worker.shutdown();
+        }
+        driverService.setPoolIndexing(true);
+    }
+
+    // Posts the driver's current state to the zone that now owns it, handing it off from the
+    // previous zone when it crossed a border. A driver new to a zone wakes it like a freed one:
+    // a rider searching mid-handoff could have missed it in both zones.
+    private void route(Driver driver, boolean becameAvailable) {
+        if (closed) {
+            return;
+        }
+        int zone = zoneGrid.zoneOf(driver.getLatitude(), driver.getLongitude());
+        int previous = driverZones.put(driver.getHandle(), zone);
+        boolean crossed = previous >= 0 && previous != zone;
+        if (crossed) {
+            ZoneShard old = shards[previous];
+            post(old, () -> old.remove(driver));
+        }
+        ZoneShard shard = shards[zone];
+        boolean wake = becameAvailable || crossed;
+        post(shard, () -> shard.refresh(driver, wake));
+    }
+
+    // Runs on the timer; the zones themselves purge and retry on their own workers
+    private void sweep() {
+        long now = System.nanoTime();
+        for (ZoneShard shard : shards) {
+            if (shard.waitingCount > 0) {
+                post(shard, () -> shard.sweep(now));
+            }
+        }
+    }
+
+    // Route runs inside DriverService's callbacks; a worker shut down by a racing close() must
+    // not turn into an exception from updateAvailability
+    private static void post(ZoneShard shard, Runnable task) {
+        try {
+            shard.worker.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Closed; the zone no longer serves anyone
+        }
+    }
+
+    private final class ZoneShard {
+        private final int zone;
+        private final int[] neighbours;
+        private final DriverService driverService;
+        private final ExecutorService worker;
+        private final Map<VehicleType, SpatialGridIndex> available = new EnumMap<>(VehicleType.class);
+        private final ArrayDeque<ZoneRequest> waiting = new ArrayDeque<>();
+        // Written only by the worker; neighbours read it to skip pointless wake-ups
+        private volatile int waitingCount;
+
+        private ZoneShard(int zone, double cellSize, DriverService driverService) {
+            this.zone = zone;
+            this.neighbours = zoneGrid.neighboursOf(zone);
+            this.driverService = driverService;
+            this.worker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "zone-" + zone);
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (VehicleType vehicleType : VehicleType.values()) {
+                available.put(vehicleType, new SpatialGridIndex(cellSize));
+            }
+        }
+
+        private void refresh(Driver driver, boolean wake) {
+            int owner = driverZones.get(driver.getHandle());
+            if (owner >= 0 && owner != zone) {
+                // Moved on again before this message ran; the new owner has its own message
+                remove(driver);
+                return;
+            }
+            SpatialGridIndex index = available.get(driver.getVehicleType());
+            if (!driver.isAvailable()) {
+                index.remove(driver);
+                return;
+            }
+            index.put(driver);
+            if (!wake) {
+                return;
+            }
+            VehicleType vehicleType = driver.getVehicleType();
+            if (waitingCount > 0) {
+                serveWaiting(vehicleType);
+            }
+            // The zones whose neighbourhood search covers this one
+            for (int neighbour : neighbours) {
+                ZoneShard shard = shards[neighbour];
+                if (shard.waitingCount > 0) {
+                    post(shard, () -> shard.serveWaiting(vehicleType));
+                }
+            }
+        }
+
+        private void remove(Driver driver) {
+            available.get(driver.getVehicleType()).remove(driver);
+        }
+
+        private void match(ZoneRequest request) {
+            if (request.result.isDone() || expireIfDue(request, System.nanoTime())) {
+                return;
+            }
+            if (!tryAssign(request)) {
+                if (closed) {
+                    // Queued ahead of close(); failWaiting may already have run
+                    request.result.completeExceptionally(new NoDriverAvailableException("Dispatcher closed"));
+                    return;
+                }
+                waiting.addLast(request);
+                waitingCount = waiting.size();
+            }
+        }
+
+        private void failWaiting() {
+            ZoneRequest request;
+            while ((request = waiting.pollFirst()) != null) {
+                request.result.completeExceptionally(new NoDriverAvailableException("Dispatcher closed"));
+            }
+            waitingCount = 0;
+        }
+
+        private void serveWaiting(VehicleType vehicleType) {
+            long now = System.nanoTime();
+            Iterator<ZoneRequest> iterator = waiting.iterator();
+            while (iterator.hasNext()) {
+                ZoneRequest request = iterator.next();
+                if (request.result.isDone() || expireIfDue(request, now)) {
+                    iterator.remove();
+                } else if (request.vehicleType == vehicleType) {
+                    if (!tryAssign(request)) {
+                        break;
+                    }
+                    iterator.remove();
+                }
+            }
+            waitingCount = waiting.size();
+        }
+
+        // Drops finished and overdue riders, then retries the rest oldest first, giving up on a
+        // vehicle type once a match for it fails
+        private void sweep(long now) {
+            boolean[] exhausted = new boolean[VEHICLE_TYPES];
+            Iterator<ZoneRequest> iterator = waiting.iterator();
+            while (iterator.hasNext()) {
+                ZoneRequest request = iterator.next();
+                if (request.result.isDone() || expireIfDue(request, now)) {
+                    iterator.remove();
+                } else if (!exhausted[request.vehicleType.ordinal()]) {
+                    if (tryAssign(request)) {
+                        iterator.remove();
+                    } else {
+                        exhausted[request.vehicleType.ordinal()] = true;
+                    }
+                }
+            }
+            waitingCount = waiting.size();
+        }
+
+        private boolean expireIfDue(ZoneRequest request, long now) {
+            if (now - request.deadline < 0) {
+                return false;
+            }
+            request.result.completeExceptionally(new NoDriverAvailableException(
+                    "No " + request.vehicleType + " driver became available in time"));
+            return true;
+        }
+
+        private boolean tryAssign(ZoneRequest request) {
+            for (int attempt = 0; attempt < MAX_RESERVATION_ATTEMPTS; attempt++) {
+                Driver candidate = findNearest(request.rider, request.vehicleType);
+                if (candidate == null) {
+                    return false;
+                }
+                if (driverService.tryReserve(candidate)) {
+                    Ride ride;
+                    try {
+                        // Releases the reservation itself if recording the ride fails
+                        ride = rideService.createAssignedRide(
+                                request.rider, request.distance, request.vehicleType, candidate);
+                    } catch (RuntimeException e) {
+                        request.result.completeExceptionally(e);
+                        return true;
+                    }
+                    if (!request.result.complete(ride)) {
+                        rideService.cancelRide(ride.getId());
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Own zone first; a neighbour is searched only if its edge is closer than the best so
+        // far, and the remaining zones only when the whole neighbourhood came up empty
+        private Driver findNearest(Rider rider, VehicleType vehicleType) {
+            double latitude = rider.getLatitude();
+            double longitude = rider.getLongitude();
+            Driver best = available.get(vehicleType).findNearest(latitude, longitude);
+            double bestDistance = best != null
+                    ? GeoDistance.equirectangularKm(latitude, longitude, best.getLatitude(), best.getLongitude())
+                    : Double.MAX_VALUE;
+            for (int neighbour : neighbours) {
+                if (zoneGrid.distanceToZoneKm(neighbour, latitude, longitude) < bestDistance) {
+                    Driver candidate = shards[neighbour].available.get(vehicleType).findNearest(latitude, longitude);
+                    if (candidate != null) {
+                        double distance = GeoDistance.equirectangularKm(
+                                latitude, longitude, candidate.getLatitude(), candidate.getLongitude());
+                        if (distance < bestDistance) {
+                            best = candidate;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+            if (best == null) {
+                for (ZoneShard shard : shards) {
+                    if (shard == this || zoneGrid.distanceToZoneKm(shard.zone, latitude, longitude) >= bestDistance) {
+                        continue;
+                    }
+                    Driver candidate = shard.available.get(vehicleType).findNearest(latitude, longitude);
+                    if (candidate != null) {
+                        double distance = GeoDistance.equirectangularKm(
+                                latitude, longitude, candidate.getLatitude(), candidate.getLongitude());
+                        if (distance < bestDistance) {
+                            best = candidate;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    private static class ZoneRequest {
+        private final Rider rider;
+        private final double distance;
+        private final VehicleType vehicleType;
+        // System.nanoTime() after which the rider stops waiting
+        private final long deadline;
+        private final CompletableFuture<Ride> result = new CompletableFuture<>();
+
+        private ZoneRequest(Rider rider, double distance, VehicleType vehicleType, long deadline) {
+            this.rider = rider;
+            this.distance = distance;
+            this.vehicleType = vehicleType;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import java.util.Collection;
+import java.util.List;
+
+public interface BatchRideMatchingStrategy {
+    // All riders in the batch requested the given vehicle type, and drivers holds that type's
+    // available pool. Returns one entry per rider, in input order; null where unmatched.
+    List<Driver> assignDrivers(List<Rider> riders, VehicleType vehicleType, Collection<Driver> drivers);
+}
@@ -0,0 +1,98 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.model.Driver;
+import java.util.Arrays;
+import java.util.List;
+
+// Keeps the k best drivers seen so far in a max-heap with the worst of them at the root, so
+// a scan costs O(n log k) and never sorts the whole list. Lower keys are better; equal keys
+// fall back to driver id so the order does not depend on iteration order.
+final class CandidateHeap {
+    private final Driver[] drivers;
+    private final double[] keys;
+    private int size;
+
+    CandidateHeap(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Candidate count must be positive");
+        }
+        drivers = new Driver[k];
+        keys = new double[k];
+    }
+
+    void offer(Driver driver, double key) {
+        if (size < drivers.length) {
+            drivers[size] = driver;
+            keys[size] = key;
+            siftUp(size++);
+        } else if (worse(keys[0], drivers[0], key, driver)) {
+            drivers[0] = driver;
+            keys[0] = key;
+            siftDown(0);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Empties the heap into a list, best first
+    List<Driver> drainSorted() {
+        Driver[] sorted = new Driver[size];
+        while (size > 0) {
+            sorted[size - 1] = drivers[0];
+            size--;
+            drivers[0] = drivers[size];
+            keys[0] = keys[size];
+            drivers[size] = null;
+            siftDown(0);
+        }
+        return Arrays.asList(sorted);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!worse(keys[position], drivers[position], keys[parent], drivers[parent])) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int left = 2 * position + 1;
+            if (left >= size) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && worse(keys[right], drivers[right], keys[left], drivers[left])) {
+                worst = right;
+            }
+            if (!worse(keys[worst], drivers[worst], keys[position], drivers[position])) {
+                return;
+            }
+            swap(position, worst);
+            position = worst;
+        }
+    }
+
+    private static boolean worse(double key, Driver driver, double otherKey, Driver other) {
+        if (key != otherKey) {
+            return key > otherKey;
+        }
+        return driver.getId().compareTo(other.getId()) > 0;
+    }
+
+    private void swap(int a, int b) {
+        Driver driver = drivers[a];
+        double key = keys[a];
+        drivers[a] = drivers[b];
+        keys[a] = keys[b];
+        drivers[b] = driver;
+        keys[b] = key;
+    }
+}
@@ -1,40 +1,12 @@
 package com.airtribe.ridewise.strategy;
 
-import com.airtribe.ridewise.model.Ride;
-import com.airtribe.ridewise.model.VehicleType;
+public class DefaultFareStrategy extends TableFareStrategy {
 
-public class DefaultFareStrategy implements FareStrategy {
-    private static final double BASE_FARE_BIKE = 30.0;
-    private static final double BASE_FARE_AUTO = 50.0;
-    private static final double BASE_FARE_CAR = 80.0;
-    
-    private static final double PER_KM_RATE_BIKE = 8.0;
-    private static final double PER_KM_RATE_AUTO = 12.0;
-    private static final double PER_KM_RATE_CAR = 15.0;
+    public DefaultFareStrategy() {
+        super(FareRateTable.defaults());
+    }
 
-    @Override
-    public double calculateFare(Ride ride) {
-        double baseFare;
-        double perKmRate;
-        
-        switch (ride.getVehicleType()) {
-            case BIKE:
-                baseFare = BASE_FARE_BIKE;
-                perKmRate = PER_KM_RATE_BIKE;
-                break;
-            case AUTO:
-                baseFare = BASE_FARE_AUTO;
-                perKmRate = PER_KM_RATE_AUTO;
-                break;
-            case CAR:
-                baseFare = BASE_FARE_CAR;
-                perKmRate = PER_KM_RATE_CAR;
-                break;
-            default:
-                baseFare = BASE_FARE_AUTO;
-                perKmRate = PER_KM_RATE_AUTO;
-        }
-        
-        return baseFare + (ride.getDistance() * perKmRate);
+    public DefaultFareStrategy(FareRateTable rateTable) {
+        super(rateTable);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import com.airtribe.ridewise.service.DriverService;
+import com.airtribe.ridewise.service.EtaService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Straight-line distance is only a pre-filter: the K nearest drivers from the spatial index
+// are ranked by road travel time to the rider, so a driver across a river loses to one
+// slightly farther away on the rider's side. Uses one point-to-point query per candidate.
+public class EtaRankedDriverStrategy implements RideMatchingStrategy {
+    private final DriverService driverService;
+    private final EtaService etaService;
+    private final int candidates;
+
+    public EtaRankedDriverStrategy(DriverService driverService, EtaService etaService, int candidates) {
+        if (candidates <= 0) {
+            throw new IllegalArgumentException("Candidate count must be positive");
+        }
+        this.driverService = driverService;
+        this.etaService = etaService;
+        this.candidates = candidates;
+    }
+
+    // Searches the driver service's spatial indexes; the passed driver list is not scanned
+    @Override
+    public Driver findDriver(Rider rider, Collection<Driver> drivers) throws NoDriverAvailableException {
+        List<Driver> nearest = new ArrayList<>();
+        for (VehicleType vehicleType : VehicleType.values()) {
+            nearest.addAll(nearestInPool(rider, vehicleType));
+        }
+        return fastest(rider, nearest);
+    }
+
+    @Override
+    public Driver findDriver(Rider rider, VehicleType vehicleType, Collection<Driver> drivers)
+            throws NoDriverAvailableException {
+        return fastest(rider, nearestInPool(rider, vehicleType));
+    }
+
+    private List<Driver> nearestInPool(Rider rider, VehicleType vehicleType) {
+        return driverService.getPool(vehicleType).getSpatialIndex()
+                .findNearest(rider.getLatitude(), rider.getLongitude(), candidates);
+    }
+
+    private Driver fastest(Rider rider, List<Driver> nearest) throws NoDriverAvailableException {
+        if (nearest.isEmpty()) {
+            throw new NoDriverAvailableException("No available drivers found nearby");
+        }
+        int pickup = etaService.nearestNode(rider.getLatitude(), rider.getLongitude());
+        Driver best = null;
+        long bestEta = EtaService.UNREACHABLE;
+        if (pickup >= 0) {
+            for (Driver driver : nearest) {
+                int start = etaService.nearestNode(driver.getLatitude(), driver.getLongitude());
+                long eta = etaService.etaMillis(start, pickup);
+                if (eta < bestEta) {
+                    bestEta = eta;
+                    best = driver;
+                }
+            }
+        }
+        // No candidate reaches the rider by road; fall back to the straight-line order
+        return best != null ? best : nearest.get(0);
+    }
+}
@@ -0,0 +1,131 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.util.Money;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+// Immutable per-vehicle rates held in arrays indexed by VehicleType ordinal. A pricing change
+// builds a new table and swaps it in; tables are never mutated in place. Rates are minor
+// currency units and multipliers are basis points.
+public class FareRateTable {
+    private static final VehicleType[] TYPES = VehicleType.values();
+    private static final long METERS_PER_KM = 1000;
+
+    private final long[] baseFares;
+    private final long[] perKmRates;
+    private final long[] multipliers;
+
+    private FareRateTable(long[] baseFares, long[] perKmRates, long[] multipliers) {
+        this.baseFares = baseFares;
+        this.perKmRates = perKmRates;
+        this.multipliers = multipliers;
+    }
+
+    public static FareRateTable defaults() {
+        long[] baseFares = new long[TYPES.length];
+        long[] perKmRates = new long[TYPES.length];
+        long[] multipliers = new long[TYPES.length];
+        for (VehicleType type : TYPES) {
+            multipliers[type.ordinal()] = Money.BASIS_POINTS;
+        }
+        baseFares[VehicleType.BIKE.ordinal()] = 3000;
+        baseFares[VehicleType.AUTO.ordinal()] = 5000;
+        baseFares[VehicleType.CAR.ordinal()] = 8000;
+        perKmRates[VehicleType.BIKE.ordinal()] = 800;
+        perKmRates[VehicleType.AUTO.ordinal()] = 1200;
+        perKmRates[VehicleType.CAR.ordinal()] = 1500;
+        return new FareRateTable(baseFares, perKmRates, multipliers);
+    }
+
+    // Keys look like "CAR.baseFare", "CAR.perKmRate" and "CAR.multiplier", with amounts in major
+    // units ("80.50"); missing keys keep the defaults
+    public static FareRateTable fromProperties(Properties properties) {
+        FareRateTable defaults = defaults();
+        long[] baseFares = defaults.baseFares.clone();
+        long[] perKmRates = defaults.perKmRates.clone();
+        long[] multipliers = defaults.multipliers.clone();
+        for (VehicleType type : TYPES) {
+            int index = type.ordinal();
+            baseFares[index] = readAmount(properties, type + ".baseFare", baseFares[index]);
+            perKmRates[index] = readAmount(properties, type + ".perKmRate", perKmRates[index]);
+            multipliers[index] = readMultiplier(properties, type + ".multiplier", multipliers[index]);
+        }
+        return new FareRateTable(baseFares, perKmRates, multipliers);
+    }
+
+    public static FareRateTable load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        return fromProperties(properties);
+    }
+
+    public FareRateTable withMultiplier(double multiplier) {
+        long basisPoints = Money.basisPoints(multiplier);
+        long[] scaled = multipliers.clone();
+        for (int i = 0; i < scaled.length; i++) {
+            scaled[i] = Money.applyMultiplier(scaled[i], basisPoints);
+        }
+        return new FareRateTable(baseFares, perKmRates, scaled);
+    }
+
+    // Rounding, each step half-up: distance to whole meters, the distance charge to a minor
+    // unit, then the vehicle multiplier to a minor unit
+    public long fare(VehicleType vehicleType, double distance) {
+        int index = vehicleType.ordinal();
+        long meters = Math.round(distance * METERS_PER_KM);
+        long subtotal = baseFares[index] + Money.divideHalfUp(perKmRates[index] * meters, METERS_PER_KM);
+        return Money.applyMultiplier(subtotal, multipliers[index]);
+    }
+
+    public long getBaseFare(VehicleType vehicleType) {
+        return baseFares[vehicleType.ordinal()];
+    }
+
+    public long getPerKmRate(VehicleType vehicleType) {
+        return perKmRates[vehicleType.ordinal()];
+    }
+
+    public long getMultiplierBasisPoints(VehicleType vehicleType) {
+        return multipliers[vehicleType.ordinal()];
+    }
+
+    private static long readAmount(Properties properties, String key, long fallback) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return fallback;
+        }
+        long amount;
+        try {
+            amount = Money.parseMinorUnits(value);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid rate for " + key + ": " + value);
+        }
+        if (amount < 0) {
+            throw new IllegalArgumentException("Invalid rate for " + key + ": " + value);
+        }
+        return amount;
+    }
+
+    private static long readMultiplier(Properties properties, String key, long fallback) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return fallback;
+        }
+        double multiplier;
+        try {
+            multiplier = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid rate for " + key + ": " + value);
+        }
+        if (multiplier < 0 || Double.isNaN(multiplier) || Double.isInfinite(multiplier)) {
+            throw new IllegalArgumentException("Invalid rate for " + key + ": " + value);
+        }
+        return Money.basisPoints(multiplier);
+    }
+}
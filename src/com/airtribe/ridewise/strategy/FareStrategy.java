@@ -3,5 +3,6 @@ package com.airtribe.ridewise.strategy;
 import com.airtribe.ridewise.model.Ride;
 
 public interface FareStrategy {
-    double calculateFare(Ride ride);
-}
\ No newline at end of file
+    // Fare in minor currency units; see Money for the rounding rules
+    long calculateFare(Ride ride);
+}
@@ -0,0 +1,92 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import com.airtribe.ridewise.service.DriverService;
+import com.airtribe.ridewise.util.GeoDistance;
+import java.util.Collection;
+import java.util.List;
+
+public class GridNearestDriverStrategy implements RideMatchingStrategy {
+    private final DriverService driverService;
+
+    public GridNearestDriverStrategy(DriverService driverService) {
+        this.driverService = driverService;
+    }
+
+    // Searches the driver service's spatial indexes; the passed driver list is not scanned
+    @Override
+    public Driver findDriver(Rider rider, Collection<Driver> drivers) throws NoDriverAvailableException {
+        Driver nearestDriver = null;
+        double minDistance = Double.MAX_VALUE;
+        for (VehicleType vehicleType : VehicleType.values()) {
+            Driver candidate = nearestInPool(rider, vehicleType);
+            if (candidate != null) {
+                double distance = GeoDistance.squaredEquirectangularKm(
+                        rider.getLatitude(), rider.getLongitude(),
+                        candidate.getLatitude(), candidate.getLongitude());
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    nearestDriver = candidate;
+                }
+            }
+        }
+        return requireDriver(nearestDriver);
+    }
+
+    @Override
+    public Driver findDriver(Rider rider, VehicleType vehicleType, Collection<Driver> drivers)
+            throws NoDriverAvailableException {
+        return requireDriver(nearestInPool(rider, vehicleType));
+    }
+
+    @Override
+    public List<Driver> findCandidates(Rider rider, Collection<Driver> drivers, int k)
+            throws NoDriverAvailableException {
+        // Each pool's k nearest are already ordered; keep the best k across pools
+        CandidateHeap nearest = new CandidateHeap(k);
+        for (VehicleType vehicleType : VehicleType.values()) {
+            for (Driver driver : nearestInPool(rider, vehicleType, k)) {
+                nearest.offer(driver, squaredDistance(rider, driver));
+            }
+        }
+        return requireCandidates(nearest.drainSorted());
+    }
+
+    @Override
+    public List<Driver> findCandidates(Rider rider, VehicleType vehicleType, Collection<Driver> drivers, int k)
+            throws NoDriverAvailableException {
+        return requireCandidates(nearestInPool(rider, vehicleType, k));
+    }
+
+    private Driver nearestInPool(Rider rider, VehicleType vehicleType) {
+        return driverService.getPool(vehicleType).getSpatialIndex()
+                .findNearest(rider.getLatitude(), rider.getLongitude());
+    }
+
+    private List<Driver> nearestInPool(Rider rider, VehicleType vehicleType, int k) {
+        return driverService.getPool(vehicleType).getSpatialIndex()
+                .findNearest(rider.getLatitude(), rider.getLongitude(), k);
+    }
+
+    private static double squaredDistance(Rider rider, Driver driver) {
+        return GeoDistance.squaredEquirectangularKm(rider.getLatitude(), rider.getLongitude(),
+                driver.getLatitude(), driver.getLongitude());
+    }
+
+    private List<Driver> requireCandidates(List<Driver> drivers) throws NoDriverAvailableException {
+        if (drivers.isEmpty()) {
+            throw new NoDriverAvailableException("No available drivers found nearby");
+        }
+        return drivers;
+    }
+
+    private Driver requireDriver(Driver driver) throws NoDriverAvailableException {
+        if (driver == null) {
+            throw new NoDriverAvailableException("No available drivers found nearby");
+        }
+        return driver;
+    }
+}
@@ -0,0 +1,268 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.service.DriverService;
+import com.airtribe.ridewise.util.GeoDistance;
+import com.airtribe.ridewise.util.IntIntMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Minimises total pickup distance over a batch. Each rider only gets edges to its k nearest
+// available drivers from the spatial index, and the solver works on that sparse graph, so
+// memory grows with the number of edges rather than riders times drivers.
+public class HungarianBatchMatchingStrategy implements BatchRideMatchingStrategy {
+    private static final double NO_EDGE_COST = 1e9;
+
+    private final DriverService driverService;
+    private final int candidatesPerRider;
+
+    public HungarianBatchMatchingStrategy(DriverService driverService, int candidatesPerRider) {
+        if (candidatesPerRider <= 0) {
+            throw new IllegalArgumentException("Candidates per rider must be positive");
+        }
+        this.driverService = driverService;
+        this.candidatesPerRider = candidatesPerRider;
+    }
+
+    @Override
+    public List<Driver> assignDrivers(List<Rider> riders, VehicleType vehicleType, Collection<Driver> drivers) {
+        List<Driver> assignment = new ArrayList<>(riders.size());
+        for (int i = 0; i < riders.size(); i++) {
+            assignment.add(null);
+        }
+        if (riders.isEmpty()) {
+            return assignment;
+        }
+
+        IntIntMap columns = new IntIntMap(-1, 1);
+        List<Driver> candidates = new ArrayList<>();
+        List<List<Driver>> nearestPerRider = new ArrayList<>(riders.size());
+        int edgeCount = 0;
+        for (Rider rider : riders) {
+            List<Driver> nearest = driverService.getPool(vehicleType).getSpatialIndex()
+                    .findNearest(rider.getLatitude(), rider.getLongitude(), candidatesPerRider);
+            for (Driver driver : nearest) {
+                if (columns.get(driver.getHandle()) < 0) {
+                    columns.put(driver.getHandle(), candidates.size());
+                    candidates.add(driver);
+                }
+            }
+            nearestPerRider.add(nearest);
+            edgeCount += nearest.size();
+        }
+        if (candidates.isEmpty()) {
+            return assignment;
+        }
+
+        int rows = riders.size();
+        int[] firstEdge = new int[rows + 1];
+        int[] edgeColumn = new int[edgeCount];
+        double[] edgeCost = new double[edgeCount];
+        int edge = 0;
+        for (int row = 0; row < rows; row++) {
+            firstEdge[row] = edge;
+            Rider rider = riders.get(row);
+            for (Driver driver : nearestPerRider.get(row)) {
+                edgeColumn[edge] = columns.get(driver.getHandle());
+                edgeCost[edge] = GeoDistance.equirectangularKm(
+                        rider.getLatitude(), rider.getLongitude(),
+                        driver.getLatitude(), driver.getLongitude());
+                edge++;
+            }
+        }
+        firstEdge[rows] = edge;
+
+        int[] columnForRow = solve(rows, candidates.size(), firstEdge, edgeColumn, edgeCost);
+        for (int row = 0; row < rows; row++) {
+            if (columnForRow[row] < candidates.size()) {
+                assignment.set(row, candidates.get(columnForRow[row]));
+            }
+        }
+        return assignment;
+    }
+
+    // Successive shortest augmenting paths over the sparse graph. Each rider also has a private
+    // fallback column at NO_EDGE_COST, so every rider is matched to something and the result is
+    // the cheapest assignment that pairs as many riders with real drivers as possible. Rows are
+    // added one at a time; Dijkstra on reduced costs finds the cheapest way to fit the new row
+    // in, and node potentials keep reduced costs non-negative. Each search only touches the
+    // part of the graph reachable from the new row, so the cost is about O(rows * E log E) for
+    // E edges instead of quadratic in the batch size. Node ids are rows first, then the real
+    // columns, then the fallback columns.
+    private static int[] solve(int rows, int realColumns, int[] firstEdge, int[] edgeColumn, double[] edgeCost) {
+        int columns = realColumns + rows;
+        int nodes = rows + columns;
+        double[] potential = new double[nodes];
+        double[] distance = new double[nodes];
+        int[] reachedIn = new int[nodes];
+        int[] settledIn = new int[nodes];
+        int[] parentRow = new int[columns];
+        int[] columnForRow = new int[rows];
+        int[] rowForColumn = new int[columns];
+        Arrays.fill(columnForRow, -1);
+        Arrays.fill(rowForColumn, -1);
+        int[] settled = new int[nodes];
+        DoubleHeap heap = new DoubleHeap(16);
+
+        for (int start = 0; start < rows; start++) {
+            int search = start + 1;
+            // Nothing leads into an unmatched row, so its potential can be raised freely until
+            // every edge out of it has a non-negative reduced cost
+            double startPotential = potential[rows + realColumns + start] - NO_EDGE_COST;
+            for (int edge = firstEdge[start]; edge < firstEdge[start + 1]; edge++) {
+                startPotential = Math.max(startPotential, potential[rows + edgeColumn[edge]] - edgeCost[edge]);
+            }
+            potential[start] = startPotential;
+
+            heap.clear();
+            distance[start] = 0;
+            reachedIn[start] = search;
+            heap.push(0, start);
+            int settledCount = 0;
+            int target = -1;
+            while (!heap.isEmpty()) {
+                double nodeDistance = heap.peekKey();
+                int node = heap.pop();
+                if (settledIn[node] == search || nodeDistance > distance[node]) {
+                    continue;
+                }
+                settledIn[node] = search;
+                settled[settledCount++] = node;
+                if (node >= rows) {
+                    int column = node - rows;
+                    int row = rowForColumn[column];
+                    if (row < 0) {
+                        target = column;
+                        break;
+                    }
+                    // Back along the matched edge, whose reduced cost is zero
+                    double cost = column < realColumns ? costOf(row, column, firstEdge, edgeColumn, edgeCost) : NO_EDGE_COST;
+                    relax(heap, distance, reachedIn, search, row,
+                            nodeDistance - cost + potential[node] - potential[row]);
+                    continue;
+                }
+                for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+                    int column = edgeColumn[edge];
+                    if (column != columnForRow[node]
+                            && relax(heap, distance, reachedIn, search, rows + column,
+                                     nodeDistance + edgeCost[edge] + potential[node] - potential[rows + column])) {
+                        parentRow[column] = node;
+                    }
+                }
+                int fallback = realColumns + node;
+                if (fallback != columnForRow[node]
+                        && relax(heap, distance, reachedIn, search, rows + fallback,
+                                 nodeDistance + NO_EDGE_COST + potential[node] - potential[rows + fallback])) {
+                    parentRow[fallback] = node;
+                }
+            }
+
+            // Shifted by the target's distance, so only settled nodes change
+            double targetDistance = distance[rows + target];
+            for (int i = 0; i < settledCount; i++) {
+                potential[settled[i]] += distance[settled[i]] - targetDistance;
+            }
+            for (int column = target; column >= 0; ) {
+                int row = parentRow[column];
+                int previous = columnForRow[row];
+                columnForRow[row] = column;
+                rowForColumn[column] = row;
+                column = previous;
+            }
+        }
+        return columnForRow;
+    }
+
+    private static boolean relax(DoubleHeap heap, double[] distance, int[] reachedIn, int search,
+                                 int node, double candidate) {
+        if (reachedIn[node] == search && candidate >= distance[node]) {
+            return false;
+        }
+        reachedIn[node] = search;
+        distance[node] = candidate;
+        heap.push(candidate, node);
+        return true;
+    }
+
+    private static double costOf(int row, int column, int[] firstEdge, int[] edgeColumn, double[] edgeCost) {
+        for (int edge = firstEdge[row]; edge < firstEdge[row + 1]; edge++) {
+            if (edgeColumn[edge] == column) {
+                return edgeCost[edge];
+            }
+        }
+        throw new IllegalStateException("Matched column " + column + " is not adjacent to row " + row);
+    }
+
+    // Binary min-heap of (distance, node) pairs; like LongHeap, an improved node is pushed again
+    // and its outdated entry skipped when it surfaces
+    private static final class DoubleHeap {
+        private double[] keys;
+        private int[] nodes;
+        private int size;
+
+        private DoubleHeap(int initialCapacity) {
+            keys = new double[initialCapacity];
+            nodes = new int[initialCapacity];
+        }
+
+        private void push(double key, int node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[index] = keys[parent];
+                nodes[index] = nodes[parent];
+                index = parent;
+            }
+            keys[index] = key;
+            nodes[index] = node;
+        }
+
+        private double peekKey() {
+            return keys[0];
+        }
+
+        private int pop() {
+            int top = nodes[0];
+            double lastKey = keys[--size];
+            int lastNode = nodes[size];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                keys[index] = keys[child];
+                nodes[index] = nodes[child];
+                index = child;
+            }
+            keys[index] = lastKey;
+            nodes[index] = lastNode;
+            return top;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+}
@@ -2,29 +2,112 @@ package com.airtribe.ridewise.strategy;
 
 import com.airtribe.ridewise.model.Driver;
 import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
 import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import com.airtribe.ridewise.service.DriverService;
+import java.util.Collection;
 import java.util.List;
 
 public class LeastActiveDriverStrategy implements RideMatchingStrategy {
+    private final DriverService driverService;
+
+    public LeastActiveDriverStrategy() {
+        this(null);
+    }
+
+    // With a driver service, selection peeks its activity heaps instead of scanning the list
+    public LeastActiveDriverStrategy(DriverService driverService) {
+        this.driverService = driverService;
+    }
     
     @Override
-    public Driver findDriver(Rider rider, List<Driver> drivers) throws NoDriverAvailableException {
+    public Driver findDriver(Rider rider, Collection<Driver> drivers) throws NoDriverAvailableException {
+        if (driverService == null) {
+            return requireDriver(scanLeastActive(drivers));
+        }
         Driver leastActiveDriver = null;
-        int minRides = Integer.MAX_VALUE;
+        for (VehicleType vehicleType : VehicleType.values()) {
+            Driver candidate = driverService.getPool(vehicleType).getActivityHeap().peek();
+            if (candidate != null && (leastActiveDriver == null || lessActive(candidate, leastActiveDriver))) {
+                leastActiveDriver = candidate;
+            }
+        }
+        return requireDriver(leastActiveDriver);
+    }
 
-        for (Driver driver : drivers) {
-            if (driver.isAvailable()) {
-                if (driver.getRidesCompleted() < minRides) {
-                    minRides = driver.getRidesCompleted();
-                    leastActiveDriver = driver;
-                }
+    @Override
+    public Driver findDriver(Rider rider, VehicleType vehicleType, Collection<Driver> drivers)
+            throws NoDriverAvailableException {
+        if (driverService == null) {
+            return requireDriver(scanLeastActive(drivers));
+        }
+        return requireDriver(driverService.getPool(vehicleType).getActivityHeap().peek());
+    }
+
+    @Override
+    public List<Driver> findCandidates(Rider rider, Collection<Driver> drivers, int k)
+            throws NoDriverAvailableException {
+        if (driverService == null) {
+            return requireCandidates(scanLeastActive(drivers, k));
+        }
+        // Each pool's k least active are already ordered; keep the best k across pools
+        CandidateHeap leastActive = new CandidateHeap(k);
+        for (VehicleType vehicleType : VehicleType.values()) {
+            for (Driver driver : driverService.getPool(vehicleType).getActivityHeap().peek(k)) {
+                leastActive.offer(driver, driver.getRidesCompleted());
             }
         }
+        return requireCandidates(leastActive.drainSorted());
+    }
+
+    @Override
+    public List<Driver> findCandidates(Rider rider, VehicleType vehicleType, Collection<Driver> drivers, int k)
+            throws NoDriverAvailableException {
+        if (driverService == null) {
+            return requireCandidates(scanLeastActive(drivers, k));
+        }
+        return requireCandidates(driverService.getPool(vehicleType).getActivityHeap().peek(k));
+    }
+
+    private List<Driver> requireCandidates(List<Driver> drivers) throws NoDriverAvailableException {
+        if (drivers.isEmpty()) {
+            throw new NoDriverAvailableException("No available drivers found");
+        }
+        return drivers;
+    }
 
-        if (leastActiveDriver == null) {
+    private Driver requireDriver(Driver driver) throws NoDriverAvailableException {
+        if (driver == null) {
             throw new NoDriverAvailableException("No available drivers found");
         }
+        return driver;
+    }
+
+    private static boolean lessActive(Driver driver, Driver other) {
+        int rides = driver.getRidesCompleted();
+        int otherRides = other.getRidesCompleted();
+        return rides < otherRides || (rides == otherRides && driver.getId().compareTo(other.getId()) < 0);
+    }
+
+    private Driver scanLeastActive(Collection<Driver> drivers) {
+        Driver leastActiveDriver = null;
+
+        for (Driver driver : drivers) {
+            if (driver.isAvailable() && (leastActiveDriver == null || lessActive(driver, leastActiveDriver))) {
+                leastActiveDriver = driver;
+            }
+        }
 
         return leastActiveDriver;
     }
-}
\ No newline at end of file
+
+    private List<Driver> scanLeastActive(Collection<Driver> drivers, int k) {
+        CandidateHeap leastActive = new CandidateHeap(k);
+        for (Driver driver : drivers) {
+            if (driver.isAvailable()) {
+                leastActive.offer(driver, driver.getRidesCompleted());
+            }
+        }
+        return leastActive.drainSorted();
+    }
+}
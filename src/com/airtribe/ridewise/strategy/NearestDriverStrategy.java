@@ -2,19 +2,24 @@ package com.airtribe.ridewise.strategy;
 
 import com.airtribe.ridewise.model.Driver;
 import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
 import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import com.airtribe.ridewise.util.GeoDistance;
+import java.util.Collection;
 import java.util.List;
 
 public class NearestDriverStrategy implements RideMatchingStrategy {
     
     @Override
-    public Driver findDriver(Rider rider, List<Driver> drivers) throws NoDriverAvailableException {
+    public Driver findDriver(Rider rider, Collection<Driver> drivers) throws NoDriverAvailableException {
         Driver nearestDriver = null;
         double minDistance = Double.MAX_VALUE;
 
         for (Driver driver : drivers) {
             if (driver.isAvailable()) {
-                double distance = calculateDistance(rider.getLocation(), driver.getCurrentLocation());
+                double distance = GeoDistance.squaredEquirectangularKm(
+                        rider.getLatitude(), rider.getLongitude(),
+                        driver.getLatitude(), driver.getLongitude());
                 if (distance < minDistance) {
                     minDistance = distance;
                     nearestDriver = driver;
@@ -29,9 +34,28 @@ public class NearestDriverStrategy implements RideMatchingStrategy {
         return nearestDriver;
     }
 
-    private double calculateDistance(String location1, String location2) {
-        // Simplified distance calculation based on location string similarity
-        // In real-world, this would use GPS coordinates
-        return Math.abs(location1.hashCode() - location2.hashCode()) % 100;
+    @Override
+    public List<Driver> findCandidates(Rider rider, Collection<Driver> drivers, int k)
+            throws NoDriverAvailableException {
+        CandidateHeap nearest = new CandidateHeap(k);
+        for (Driver driver : drivers) {
+            if (driver.isAvailable()) {
+                nearest.offer(driver, GeoDistance.squaredEquirectangularKm(
+                        rider.getLatitude(), rider.getLongitude(),
+                        driver.getLatitude(), driver.getLongitude()));
+            }
+        }
+
+        if (nearest.isEmpty()) {
+            throw new NoDriverAvailableException("No available drivers found nearby");
+        }
+
+        return nearest.drainSorted();
+    }
+
+    @Override
+    public List<Driver> findCandidates(Rider rider, VehicleType vehicleType, Collection<Driver> drivers, int k)
+            throws NoDriverAvailableException {
+        return findCandidates(rider, drivers, k);
     }
-}
\ No newline at end of file
+}
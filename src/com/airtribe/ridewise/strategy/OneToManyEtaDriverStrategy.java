@@ -0,0 +1,78 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import com.airtribe.ridewise.service.DriverService;
+import com.airtribe.ridewise.service.EtaService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Ranks the K nearest drivers from the spatial index by road travel time like
+// EtaRankedDriverStrategy, but with one backward search from the pickup that answers for all
+// candidates at once. The search gives up past cutoffMillis, so a candidate that is close in a
+// straight line but only reachable by a long detour costs no more than the cutoff allows.
+public class OneToManyEtaDriverStrategy implements RideMatchingStrategy {
+    private final DriverService driverService;
+    private final EtaService etaService;
+    private final int candidates;
+    private final long cutoffMillis;
+
+    public OneToManyEtaDriverStrategy(DriverService driverService, EtaService etaService, int candidates,
+                                      long cutoffMillis) {
+        if (candidates <= 0) {
+            throw new IllegalArgumentException("Candidate count must be positive");
+        }
+        if (cutoffMillis <= 0) {
+            throw new IllegalArgumentException("ETA cutoff must be positive");
+        }
+        this.driverService = driverService;
+        this.etaService = etaService;
+        this.candidates = candidates;
+        this.cutoffMillis = cutoffMillis;
+    }
+
+    // Searches the driver service's spatial indexes; the passed driver list is not scanned
+    @Override
+    public Driver findDriver(Rider rider, Collection<Driver> drivers) throws NoDriverAvailableException {
+        List<Driver> nearest = new ArrayList<>();
+        for (VehicleType vehicleType : VehicleType.values()) {
+            nearest.addAll(nearestInPool(rider, vehicleType));
+        }
+        return fastest(rider, nearest);
+    }
+
+    @Override
+    public Driver findDriver(Rider rider, VehicleType vehicleType, Collection<Driver> drivers)
+            throws NoDriverAvailableException {
+        return fastest(rider, nearestInPool(rider, vehicleType));
+    }
+
+    private List<Driver> nearestInPool(Rider rider, VehicleType vehicleType) {
+        return driverService.getPool(vehicleType).getSpatialIndex()
+                .findNearest(rider.getLatitude(), rider.getLongitude(), candidates);
+    }
+
+    private Driver fastest(Rider rider, List<Driver> nearest) throws NoDriverAvailableException {
+        if (nearest.isEmpty()) {
+            throw new NoDriverAvailableException("No available drivers found nearby");
+        }
+        int pickup = etaService.nearestNode(rider.getLatitude(), rider.getLongitude());
+        int[] starts = new int[nearest.size()];
+        for (int i = 0; i < starts.length; i++) {
+            Driver driver = nearest.get(i);
+            starts[i] = etaService.nearestNode(driver.getLatitude(), driver.getLongitude());
+        }
+        long[] etas = etaService.etaMillisToTarget(starts, pickup, cutoffMillis);
+        int best = -1;
+        for (int i = 0; i < etas.length; i++) {
+            if (etas[i] != EtaService.UNREACHABLE && (best < 0 || etas[i] < etas[best])) {
+                best = i;
+            }
+        }
+        // No candidate reaches the rider within the cutoff; fall back to the straight-line order
+        return nearest.get(Math.max(best, 0));
+    }
+}
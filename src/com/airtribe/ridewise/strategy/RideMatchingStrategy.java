@@ -2,9 +2,32 @@ package com.airtribe.ridewise.strategy;
 
 import com.airtribe.ridewise.model.Driver;
 import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
 import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public interface RideMatchingStrategy {
-    Driver findDriver(Rider rider, List<Driver> drivers) throws NoDriverAvailableException;
-}
\ No newline at end of file
+    Driver findDriver(Rider rider, Collection<Driver> drivers) throws NoDriverAvailableException;
+
+    // Called with only the available drivers of the requested vehicle type; index-backed
+    // strategies override this to search that type's pool directly
+    default Driver findDriver(Rider rider, VehicleType vehicleType, Collection<Driver> drivers)
+            throws NoDriverAvailableException {
+        return findDriver(rider, drivers);
+    }
+
+    // Up to k drivers, best first, from a single search, so a dispatcher that loses one to a
+    // concurrent reservation can try the next instead of searching again. Strategies that do
+    // not rank beyond their pick return just that driver.
+    default List<Driver> findCandidates(Rider rider, Collection<Driver> drivers, int k)
+            throws NoDriverAvailableException {
+        return Collections.singletonList(findDriver(rider, drivers));
+    }
+
+    default List<Driver> findCandidates(Rider rider, VehicleType vehicleType, Collection<Driver> drivers, int k)
+            throws NoDriverAvailableException {
+        return Collections.singletonList(findDriver(rider, vehicleType, drivers));
+    }
+}
@@ -0,0 +1,37 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.exception.NoDriverAvailableException;
+import com.airtribe.ridewise.service.DriverService;
+import java.util.Collection;
+
+// Brute-force nearest driver over the driver service's structure-of-arrays store. Useful where
+// a full scan is wanted (no grid tuning, exact answer); the passed driver list is not scanned.
+public class SoaNearestDriverStrategy implements RideMatchingStrategy {
+    private final DriverService driverService;
+
+    public SoaNearestDriverStrategy(DriverService driverService) {
+        this.driverService = driverService;
+    }
+
+    @Override
+    public Driver findDriver(Rider rider, Collection<Driver> drivers) throws NoDriverAvailableException {
+        return requireDriver(driverService.getDriverStore().findNearest(rider.getLatitude(), rider.getLongitude(), null));
+    }
+
+    @Override
+    public Driver findDriver(Rider rider, VehicleType vehicleType, Collection<Driver> drivers)
+            throws NoDriverAvailableException {
+        return requireDriver(driverService.getDriverStore()
+                .findNearest(rider.getLatitude(), rider.getLongitude(), vehicleType));
+    }
+
+    private Driver requireDriver(Driver driver) throws NoDriverAvailableException {
+        if (driver == null) {
+            throw new NoDriverAvailableException("No available drivers found nearby");
+        }
+        return driver;
+    }
+}
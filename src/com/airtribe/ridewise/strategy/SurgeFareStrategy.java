@@ -0,0 +1,200 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.index.ZoneGrid;
+import com.airtribe.ridewise.model.Driver;
+import com.airtribe.ridewise.model.Ride;
+import com.airtribe.ridewise.model.Rider;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.service.DriverService;
+import com.airtribe.ridewise.service.RideEventListener;
+import com.airtribe.ridewise.service.RideService;
+import com.airtribe.ridewise.util.IntIntMap;
+import com.airtribe.ridewise.util.Money;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Prices each ride at the table fare times its pickup zone's surge multiplier. Demand is the
+// number of ride requests arriving in the zone over a sliding window, kept in time buckets and
+// counted on arrival, so requests still queued in a dispatcher or refused for lack of drivers
+// count too; supply is the zone's available drivers. Both are maintained from service events,
+// and each event that touches a zone recomputes that zone's multiplier, so the fare path is a
+// single atomic read. Once attached, a timer recomputes every zone each bucket so that zones
+// with no events still decay as their window empties.
+public class SurgeFareStrategy extends TableFareStrategy implements RideEventListener, AutoCloseable {
+    private static final int WINDOW_BUCKETS = 12;
+
+    private final ZoneGrid zoneGrid;
+    private final long bucketMillis;
+    private final double sensitivity;
+    private final double maxMultiplier;
+    private final ZoneDemand[] demand;
+    private final AtomicIntegerArray availableDrivers;
+    // Multipliers in basis points
+    private final AtomicLongArray multipliers;
+    // Zone of each driver currently counted as available, by driver handle
+    private final IntIntMap availableZones = new IntIntMap(-1);
+    private final ScheduledExecutorService refresher;
+    private DriverService driverService;
+    private RideService rideService;
+
+    public SurgeFareStrategy(ZoneGrid zoneGrid, FareRateTable rateTable, long windowMillis,
+                             double sensitivity, double maxMultiplier) {
+        super(rateTable);
+        this.zoneGrid = zoneGrid;
+        this.bucketMillis = Math.max(1, windowMillis / WINDOW_BUCKETS);
+        this.sensitivity = sensitivity;
+        this.maxMultiplier = maxMultiplier;
+        int zones = zoneGrid.zoneCount();
+        this.demand = new ZoneDemand[zones];
+        this.availableDrivers = new AtomicIntegerArray(zones);
+        this.multipliers = new AtomicLongArray(zones);
+        for (int zone = 0; zone < zones; zone++) {
+            demand[zone] = new ZoneDemand();
+            multipliers.set(zone, Money.BASIS_POINTS);
+        }
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "surge-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Seeds supply from the drivers already registered, then follows both services' events
+    public synchronized void attach(DriverService driverService, RideService rideService) {
+        this.driverService = driverService;
+        this.rideService = rideService;
+        driverService.addEventListener(this);
+        rideService.addEventListener(this);
+        for (Driver driver : driverService.getAvailableDrivers()) {
+            trackSupply(driver);
+        }
+        refresher.scheduleAtFixedRate(this::refresh, bucketMillis, bucketMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the refresh timer and detaches from the services; multipliers keep their last value
+    @Override
+    public synchronized void close() {
+        refresher.shutdownNow();
+        if (driverService != null) {
+            driverService.removeEventListener(this);
+            rideService.removeEventListener(this);
+        }
+    }
+
+    @Override
+    public long calculateFare(Ride ride) {
+        Rider rider = ride.getRider();
+        return quote(ride.getVehicleType(), ride.getDistance(), zoneGrid.zoneOf(rider.getLatitude(), rider.getLongitude()));
+    }
+
+    @Override
+    public long quote(VehicleType vehicleType, double distance, int zone) {
+        return Money.applyMultiplier(super.quote(vehicleType, distance, zone), multipliers.get(zone));
+    }
+
+    public long getMultiplierBasisPoints(int zone) {
+        return multipliers.get(zone);
+    }
+
+    // Display only
+    public double getMultiplier(int zone) {
+        return multipliers.get(zone) / (double) Money.BASIS_POINTS;
+    }
+
+    public ZoneGrid getZoneGrid() {
+        return zoneGrid;
+    }
+
+    // Recomputes every zone so that quiet zones decay as their window empties
+    public void refresh() {
+        for (int zone = 0; zone < demand.length; zone++) {
+            recompute(zone);
+        }
+    }
+
+    @Override
+    public void rideDemanded(Rider rider, VehicleType vehicleType) {
+        int zone = zoneGrid.zoneOf(rider.getLatitude(), rider.getLongitude());
+        ZoneDemand zoneDemand = demand[zone];
+        synchronized (zoneDemand) {
+            zoneDemand.advance(System.currentTimeMillis());
+            zoneDemand.buckets[zoneDemand.current]++;
+            zoneDemand.total++;
+        }
+        recompute(zone);
+    }
+
+    @Override
+    public void driverRegistered(Driver driver) {
+        trackSupply(driver);
+    }
+
+    @Override
+    public void driverAvailabilityChanged(Driver driver, boolean available) {
+        trackSupply(driver);
+    }
+
+    @Override
+    public void driverLocationChanged(Driver driver) {
+        trackSupply(driver);
+    }
+
+    // Driver events arrive under the driver's lock, so updates for one driver do not interleave
+    private void trackSupply(Driver driver) {
+        int current = driver.isAvailable()
+                ? zoneGrid.zoneOf(driver.getLatitude(), driver.getLongitude())
+                : -1;
+        int previous = current >= 0
+                ? availableZones.put(driver.getHandle(), current)
+                : availableZones.remove(driver.getHandle());
+        if (previous == current) {
+            return;
+        }
+        if (previous >= 0) {
+            availableDrivers.decrementAndGet(previous);
+            recompute(previous);
+        }
+        if (current >= 0) {
+            availableDrivers.incrementAndGet(current);
+            recompute(current);
+        }
+    }
+
+    private void recompute(int zone) {
+        ZoneDemand zoneDemand = demand[zone];
+        long requests;
+        synchronized (zoneDemand) {
+            zoneDemand.advance(System.currentTimeMillis());
+            requests = zoneDemand.total;
+        }
+        double ratio = requests / (double) Math.max(1, availableDrivers.get(zone));
+        double multiplier = Math.min(maxMultiplier, Math.max(1.0, 1.0 + sensitivity * (ratio - 1.0)));
+        long basisPoints = Money.basisPoints(multiplier);
+        multipliers.set(zone, basisPoints);
+    }
+
+    // Request counts per time bucket in a ring covering the window
+    private final class ZoneDemand {
+        private final long[] buckets = new long[WINDOW_BUCKETS];
+        private int current;
+        private long currentBucketStart;
+        private long total;
+
+        private void advance(long now) {
+            long bucketStart = now - now % bucketMillis;
+            if (bucketStart <= currentBucketStart) {
+                return;
+            }
+            long steps = Math.min(WINDOW_BUCKETS, (bucketStart - currentBucketStart) / bucketMillis);
+            for (int step = 0; step < steps; step++) {
+                current = (current + 1) % WINDOW_BUCKETS;
+                total -= buckets[current];
+                buckets[current] = 0;
+            }
+            currentBucketStart = bucketStart;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.airtribe.ridewise.strategy;
+
+import com.airtribe.ridewise.model.Ride;
+import com.airtribe.ridewise.model.VehicleType;
+import com.airtribe.ridewise.util.Money;
+
+// Fare is a table lookup plus arithmetic. The rate table is read through a volatile field,
+// so a new table can be swapped in while fares are being calculated.
+public class TableFareStrategy implements FareStrategy {
+    private volatile FareRateTable rateTable;
+    private final long multiplierBasisPoints;
+
+    public TableFareStrategy(FareRateTable rateTable) {
+        this(rateTable, 1.0);
+    }
+
+    public TableFareStrategy(FareRateTable rateTable, double multiplier) {
+        this.rateTable = rateTable;
+        this.multiplierBasisPoints = Money.basisPoints(multiplier);
+    }
+
+    @Override
+    public long calculateFare(Ride ride) {
+        return quote(ride.getVehicleType(), ride.getDistance(), 0);
+    }
+
+    // Prices a trip without a Ride. The zone matters only to strategies that price by zone.
+    public long quote(VehicleType vehicleType, double distance, int zone) {
+        return Money.applyMultiplier(rateTable.fare(vehicleType, distance), multiplierBasisPoints);
+    }
+
+    public FareRateTable getRateTable() {
+        return rateTable;
+    }
+
+    public void updateRateTable(FareRateTable rateTable) {
+        this.rateTable = rateTable;
+    }
+}
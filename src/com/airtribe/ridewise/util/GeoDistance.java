@@ -0,0 +1,39 @@
+package com.airtribe.ridewise.util;
+
+public class GeoDistance {
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    public static final double KM_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_KM;
+
+    // Beyond this range the equirectangular error grows past ~0.1% and haversine is used instead
+    private static final double REFINEMENT_THRESHOLD_KM = 50.0;
+
+    // Squared equirectangular distance in km^2; monotonic with distance, so it is enough for ranking
+    public static double squaredEquirectangularKm(double lat1, double lng1, double lat2, double lng2) {
+        double x = (lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) * 0.5));
+        double y = lat2 - lat1;
+        return (x * x + y * y) * KM_PER_DEGREE * KM_PER_DEGREE;
+    }
+
+    public static double equirectangularKm(double lat1, double lng1, double lat2, double lng2) {
+        return Math.sqrt(squaredEquirectangularKm(lat1, lng1, lat2, lng2));
+    }
+
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double sinLat = Math.sin(dLat * 0.5);
+        double sinLng = Math.sin(dLng * 0.5);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLng * sinLng;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // Equirectangular at city scale, refined with haversine for long distances
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double approximate = equirectangularKm(lat1, lng1, lat2, lng2);
+        if (approximate < REFINEMENT_THRESHOLD_KM) {
+            return approximate;
+        }
+        return haversineKm(lat1, lng1, lat2, lng2);
+    }
+}
@@ -3,19 +3,88 @@ package com.airtribe.ridewise.util;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class IdGenerator {
+    private static final int MIN_DIGITS = 4;
+
     private static final AtomicInteger riderCounter = new AtomicInteger(1);
     private static final AtomicInteger driverCounter = new AtomicInteger(1);
     private static final AtomicInteger rideCounter = new AtomicInteger(1);
+    private static volatile SnowflakeIdGenerator compactRideIds;
 
     public static String generateRiderId() {
-        return "RDR" + String.format("%04d", riderCounter.getAndIncrement());
+        return pad("RDR", riderCounter.getAndIncrement());
     }
 
     public static String generateDriverId() {
-        return "DRV" + String.format("%04d", driverCounter.getAndIncrement());
+        return pad("DRV", driverCounter.getAndIncrement());
     }
 
+    // Reads the mode once, so an id generated while compact ids are being enabled is never a
+    // sequential key formatted as a Snowflake or the reverse
     public static String generateRideId() {
-        return "RIDE" + String.format("%04d", rideCounter.getAndIncrement());
+        SnowflakeIdGenerator generator = compactRideIds;
+        return formatRideId(generator, nextRideKey(generator));
+    }
+
+    // Switches ride ids to 64-bit Snowflake keys rendered as fixed-width, sortable strings.
+    // Sequential ids stay the default; "%04d"-style ids stop sorting correctly past 9999.
+    public static void enableCompactRideIds(int nodeId) {
+        compactRideIds = new SnowflakeIdGenerator(nodeId);
+    }
+
+    // Primitive ride key; callers that only store or compare ids can defer formatRideId
+    public static long nextRideKey() {
+        return nextRideKey(compactRideIds);
+    }
+
+    public static String formatRideId(long rideKey) {
+        return formatRideId(compactRideIds, rideKey);
+    }
+
+    private static long nextRideKey(SnowflakeIdGenerator generator) {
+        return generator != null ? generator.nextId() : rideCounter.getAndIncrement();
+    }
+
+    private static String formatRideId(SnowflakeIdGenerator generator, long rideKey) {
+        return generator != null
+                ? "RIDE" + SnowflakeIdGenerator.format(rideKey)
+                : pad("RIDE", rideKey);
+    }
+
+    // Moves the matching sequential counter beyond a restored id so new ids cannot collide
+    public static void advancePast(String id) {
+        if (id.startsWith("RIDE")) {
+            advance(rideCounter, id.substring(4));
+        } else if (id.startsWith("RDR")) {
+            advance(riderCounter, id.substring(3));
+        } else if (id.startsWith("DRV")) {
+            advance(driverCounter, id.substring(3));
+        }
+    }
+
+    private static void advance(AtomicInteger counter, String digits) {
+        int value;
+        try {
+            value = Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            // Compact ids are time based and never collide with the counter
+            return;
+        }
+        counter.accumulateAndGet(value + 1, Math::max);
+    }
+
+    // Zero-pads to at least MIN_DIGITS without going through java.util.Formatter
+    private static String pad(String prefix, long value) {
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        int width = Math.max(digits, MIN_DIGITS);
+        char[] chars = new char[prefix.length() + width];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = chars.length - 1; i >= prefix.length(); i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(chars);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,189 @@
+package com.airtribe.ridewise.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Maps public string ids to dense int handles, assigned 0, 1, 2... in first-seen order. This
+// is the one place a string id is hashed; everything behind it is keyed by the handle. Each
+// slot packs the id's hash and its handle into one long, so a probe only dereferences an id
+// string whose hash already matches. Ids are striped like IntObjectMap: interning locks only
+// the id's stripe, and reads take no lock. Removing an id frees its handle onto the stripe's
+// free list, and the stripe's next new id reuses it before a fresh handle is taken from the
+// shared counter, so handles stay dense and bounded by the peak number of live ids even for
+// short-lived ids such as rides. A freed handle may name a different id later: callers must
+// drop their entries for a handle before removing its id.
+public class IdInterner {
+    private static final int NONE = -1;
+    private static final float LOAD_FACTOR = 0.7f;
+    private static final int STRIPE_BITS = 4;
+    // Set in every claimed slot, so that an all-zero entry always means empty
+    private static final long OCCUPIED = 0x8000_0000L;
+    private static final VarHandle IDS = MethodHandles.arrayElementVarHandle(String[].class);
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+    private final AtomicInteger nextHandle = new AtomicInteger();
+
+    public IdInterner() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // The id's handle, or -1 if it has none
+    public int find(String id) {
+        int hash = id.hashCode();
+        int mixed = IntObjectMap.mix(hash);
+        Table current = stripeFor(mixed).table;
+        int mask = current.entries.length - 1;
+        for (int slot = mixed & mask; ; slot = (slot + 1) & mask) {
+            long entry = (long) ENTRIES.getAcquire(current.entries, slot);
+            if (entry == 0) {
+                return NONE;
+            }
+            if ((int) (entry >>> 32) == hash && current.ids[slot].equals(id)) {
+                return handleOf(entry);
+            }
+        }
+    }
+
+    public int intern(String id) {
+        int handle = find(id);
+        if (handle != NONE) {
+            return handle;
+        }
+        int hash = id.hashCode();
+        return stripeFor(IntObjectMap.mix(hash)).intern(id, hash);
+    }
+
+    // Returns the freed handle, or -1 if the id had none
+    public int remove(String id) {
+        int hash = id.hashCode();
+        return stripeFor(IntObjectMap.mix(hash)).remove(id, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    // Upper bound on handles issued so far, for sizing handle-indexed arrays
+    public int handleLimit() {
+        return nextHandle.get();
+    }
+
+    private Stripe stripeFor(int mixed) {
+        return stripes[mixed >>> (32 - STRIPE_BITS)];
+    }
+
+    // [hash][occupied bit][handle + 1 in 31 bits]; a retired handle is stored as zero
+    private static long entry(int hash, int handle) {
+        return ((long) hash << 32) | OCCUPIED | (handle + 1);
+    }
+
+    private static int handleOf(long entry) {
+        return (int) (entry & (OCCUPIED - 1)) - 1;
+    }
+
+    private final class Stripe {
+        private volatile Table table = new Table(16);
+        private volatile int size;
+        private int used;
+        private int[] freeHandles = new int[8];
+        private int freeCount;
+
+        private synchronized int intern(String id, int hash) {
+            Table current = table;
+            int mask = current.entries.length - 1;
+            int slot = IntObjectMap.mix(hash) & mask;
+            for (; current.entries[slot] != 0; slot = (slot + 1) & mask) {
+                if ((int) (current.entries[slot] >>> 32) == hash && current.ids[slot].equals(id)) {
+                    int handle = handleOf(current.entries[slot]);
+                    if (handle == NONE) {
+                        handle = takeHandle();
+                        ENTRIES.setRelease(current.entries, slot, entry(hash, handle));
+                        size++;
+                    }
+                    return handle;
+                }
+            }
+            if (used + 1 > current.entries.length * LOAD_FACTOR) {
+                rebuild(size + 1);
+                return intern(id, hash);
+            }
+            int handle = takeHandle();
+            // The id goes in before the entry that makes the slot visible to readers
+            IDS.setRelease(current.ids, slot, id);
+            ENTRIES.setRelease(current.entries, slot, entry(hash, handle));
+            used++;
+            size++;
+            return handle;
+        }
+
+        private synchronized int remove(String id, int hash) {
+            Table current = table;
+            int mask = current.entries.length - 1;
+            for (int slot = IntObjectMap.mix(hash) & mask; current.entries[slot] != 0; slot = (slot + 1) & mask) {
+                if ((int) (current.entries[slot] >>> 32) == hash && current.ids[slot].equals(id)) {
+                    int handle = handleOf(current.entries[slot]);
+                    if (handle != NONE) {
+                        ENTRIES.setRelease(current.entries, slot, entry(hash, NONE));
+                        size--;
+                        freeHandle(handle);
+                    }
+                    return handle;
+                }
+            }
+            return NONE;
+        }
+
+        private int takeHandle() {
+            return freeCount > 0 ? freeHandles[--freeCount] : nextHandle.getAndIncrement();
+        }
+
+        private void freeHandle(int handle) {
+            if (freeCount == freeHandles.length) {
+                freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+            }
+            freeHandles[freeCount++] = handle;
+        }
+
+        private void rebuild(int needed) {
+            int capacity = table.entries.length;
+            while (needed > capacity * LOAD_FACTOR) {
+                capacity <<= 1;
+            }
+            Table old = table;
+            Table rebuilt = new Table(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.entries.length; i++) {
+                long entry = old.entries[i];
+                if (entry != 0 && handleOf(entry) != NONE) {
+                    int slot = IntObjectMap.mix((int) (entry >>> 32)) & mask;
+                    while (rebuilt.entries[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    rebuilt.ids[slot] = old.ids[i];
+                    rebuilt.entries[slot] = entry;
+                }
+            }
+            used = size;
+            table = rebuilt;
+        }
+    }
+
+    private static final class Table {
+        private final String[] ids;
+        private final long[] entries;
+
+        private Table(int capacity) {
+            ids = new String[capacity];
+            entries = new long[capacity];
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.airtribe.ridewise.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+// Open-addressing map from non-negative int keys to int values, with the same striping as
+// IntObjectMap: writers lock their stripe, readers take no lock, value published before key.
+// A removed key becomes a tombstone that is never reused until its stripe's table is rebuilt,
+// so a slot only ever holds values of the key it was first claimed for.
+public class IntIntMap {
+    private static final int EMPTY = -1;
+    private static final int TOMBSTONE = -2;
+    private static final float LOAD_FACTOR = 0.7f;
+    private static final int DEFAULT_STRIPES = 16;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int missingValue;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final int stripeMask;
+
+    // missingValue is what get, put and remove return for an absent key
+    public IntIntMap(int missingValue) {
+        this(missingValue, DEFAULT_STRIPES);
+    }
+
+    public IntIntMap(int missingValue, int stripeCount) {
+        int bits = IntObjectMap.stripeBits(stripeCount);
+        this.missingValue = missingValue;
+        this.stripes = new Stripe[1 << bits];
+        this.stripeShift = 32 - bits;
+        this.stripeMask = stripes.length - 1;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public int get(int key) {
+        int hash = IntObjectMap.mix(key);
+        Table current = stripeFor(hash).table;
+        int mask = current.keys.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int found = (int) INTS.getAcquire(current.keys, slot);
+            if (found == key) {
+                return (int) INTS.getAcquire(current.values, slot);
+            }
+            if (found == EMPTY) {
+                return missingValue;
+            }
+        }
+    }
+
+    public int put(int key, int value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Keys must be non-negative");
+        }
+        int hash = IntObjectMap.mix(key);
+        return stripeFor(hash).put(key, hash, value);
+    }
+
+    public int remove(int key) {
+        int hash = IntObjectMap.mix(key);
+        return stripeFor(hash).remove(key, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[(hash >>> stripeShift) & stripeMask];
+    }
+
+    private final class Stripe {
+        private volatile Table table = new Table(16);
+        private volatile int size;
+        private int used;
+
+        private synchronized int put(int key, int hash, int value) {
+            Table current = table;
+            int mask = current.keys.length - 1;
+            int slot = hash & mask;
+            for (; current.keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (current.keys[slot] == key) {
+                    int previous = current.values[slot];
+                    INTS.setRelease(current.values, slot, value);
+                    return previous;
+                }
+            }
+            if (used + 1 > current.keys.length * LOAD_FACTOR) {
+                rebuild(size + 1);
+                return put(key, hash, value);
+            }
+            INTS.setRelease(current.values, slot, value);
+            INTS.setRelease(current.keys, slot, key);
+            used++;
+            size++;
+            return missingValue;
+        }
+
+        private synchronized int remove(int key, int hash) {
+            Table current = table;
+            int mask = current.keys.length - 1;
+            for (int slot = hash & mask; current.keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (current.keys[slot] == key) {
+                    INTS.setRelease(current.keys, slot, TOMBSTONE);
+                    size--;
+                    return current.values[slot];
+                }
+            }
+            return missingValue;
+        }
+
+        private void rebuild(int needed) {
+            int capacity = table.keys.length;
+            while (needed > capacity * LOAD_FACTOR) {
+                capacity <<= 1;
+            }
+            Table old = table;
+            Table rebuilt = new Table(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] >= 0) {
+                    int slot = IntObjectMap.mix(old.keys[i]) & mask;
+                    while (rebuilt.keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    rebuilt.keys[slot] = old.keys[i];
+                    rebuilt.values[slot] = old.values[i];
+                }
+            }
+            used = size;
+            table = rebuilt;
+        }
+    }
+
+    private static final class Table {
+        private final int[] keys;
+        private final int[] values;
+
+        private Table(int capacity) {
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.airtribe.ridewise.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Open-addressing map from non-negative int keys to objects, with linear probing. Keys are
+// spread over independent stripes by the top bits of their hash; writers lock only their
+// stripe, so writes to different stripes run in parallel, and readers take no lock. A slot's
+// value is published before its key, and a key never moves within a table, so a reader that
+// finds the key also sees its value. Removal clears the value and leaves the key as a
+// tombstone that only the same key can reuse; tombstones are dropped when a stripe's table is
+// rebuilt.
+public class IntObjectMap<V> {
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.7f;
+    private static final int DEFAULT_STRIPES = 16;
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final int stripeMask;
+    private final Collection values = new Collection();
+
+    public IntObjectMap() {
+        this(DEFAULT_STRIPES);
+    }
+
+    // Rounded up to a power of two; one stripe suits a map that is only written under an
+    // outer lock anyway
+    public IntObjectMap(int stripeCount) {
+        int bits = stripeBits(stripeCount);
+        this.stripes = new Stripe[1 << bits];
+        this.stripeShift = 32 - bits;
+        this.stripeMask = stripes.length - 1;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public V get(int key) {
+        int hash = mix(key);
+        Table current = stripeFor(hash).table;
+        int mask = current.keys.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int found = (int) KEYS.getAcquire(current.keys, slot);
+            if (found == key) {
+                @SuppressWarnings("unchecked")
+                V value = (V) VALUES.getAcquire(current.values, slot);
+                return value;
+            }
+            if (found == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    public V put(int key, V value) {
+        if (key < 0 || value == null) {
+            throw new IllegalArgumentException("Keys must be non-negative and values non-null");
+        }
+        int hash = mix(key);
+        @SuppressWarnings("unchecked")
+        V previous = (V) stripeFor(hash).put(key, hash, value, false);
+        return previous;
+    }
+
+    public V putIfAbsent(int key, V value) {
+        if (key < 0 || value == null) {
+            throw new IllegalArgumentException("Keys must be non-negative and values non-null");
+        }
+        int hash = mix(key);
+        @SuppressWarnings("unchecked")
+        V existing = (V) stripeFor(hash).put(key, hash, value, true);
+        return existing;
+    }
+
+    public V remove(int key) {
+        int hash = mix(key);
+        @SuppressWarnings("unchecked")
+        V previous = (V) stripeFor(hash).remove(key, hash);
+        return previous;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    // Live read-only view; iteration is weakly consistent, like the concurrent collections
+    public java.util.Collection<V> values() {
+        return values;
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[(hash >>> stripeShift) & stripeMask];
+    }
+
+    static int stripeBits(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        return 32 - Integer.numberOfLeadingZeros(stripeCount - 1);
+    }
+
+    static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Stripe {
+        private volatile Table table = new Table(16);
+        private volatile int size;
+        private int tombstones;
+
+        private synchronized Object put(int key, int hash, Object value, boolean onlyIfAbsent) {
+            if (size + tombstones + 1 > table.keys.length * LOAD_FACTOR) {
+                rebuild(size + 1);
+            }
+            Table current = table;
+            int mask = current.keys.length - 1;
+            int slot = hash & mask;
+            while (current.keys[slot] != EMPTY && current.keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            Object previous = current.values[slot];
+            if (onlyIfAbsent && previous != null) {
+                return previous;
+            }
+            VALUES.setRelease(current.values, slot, value);
+            if (current.keys[slot] == EMPTY) {
+                KEYS.setRelease(current.keys, slot, key);
+                size++;
+            } else if (previous == null) {
+                tombstones--;
+                size++;
+            }
+            return previous;
+        }
+
+        private synchronized Object remove(int key, int hash) {
+            Table current = table;
+            int mask = current.keys.length - 1;
+            for (int slot = hash & mask; current.keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (current.keys[slot] == key) {
+                    Object previous = current.values[slot];
+                    if (previous != null) {
+                        VALUES.setRelease(current.values, slot, null);
+                        size--;
+                        tombstones++;
+                    }
+                    return previous;
+                }
+            }
+            return null;
+        }
+
+        private void rebuild(int needed) {
+            int capacity = table.keys.length;
+            while (needed > capacity * LOAD_FACTOR) {
+                capacity <<= 1;
+            }
+            Table old = table;
+            Table rebuilt = new Table(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] != EMPTY && old.values[i] != null) {
+                    int slot = mix(old.keys[i]) & mask;
+                    while (rebuilt.keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    rebuilt.keys[slot] = old.keys[i];
+                    rebuilt.values[slot] = old.values[i];
+                }
+            }
+            tombstones = 0;
+            table = rebuilt;
+        }
+    }
+
+    private static final class Table {
+        private final int[] keys;
+        private final Object[] values;
+
+        private Table(int capacity) {
+            keys = new int[capacity];
+            values = new Object[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+
+    private final class Collection extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<V>() {
+                private int stripe = -1;
+                private Object[] snapshot = NO_VALUES;
+                private int from;
+                // Read while advancing, so a value removed after hasNext() is still returned
+                private Object next = advance();
+
+                // Walks the current stripe's table, then each later stripe's in turn
+                private Object advance() {
+                    while (true) {
+                        while (from < snapshot.length) {
+                            Object value = VALUES.getAcquire(snapshot, from++);
+                            if (value != null) {
+                                return value;
+                            }
+                        }
+                        if (stripe + 1 == stripes.length) {
+                            return null;
+                        }
+                        snapshot = stripes[++stripe].table.values;
+                        from = 0;
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public V next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    V value = (V) next;
+                    next = advance();
+                    return value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return IntObjectMap.this.size();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.airtribe.ridewise.util;
+
+public class LocationParser {
+
+    // Accepts "lat,lng" strings; returns null when the location carries no coordinates
+    public static double[] parse(String location) {
+        if (location == null) {
+            return null;
+        }
+        int comma = location.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        try {
+            double latitude = Double.parseDouble(location.substring(0, comma).trim());
+            double longitude = Double.parseDouble(location.substring(comma + 1).trim());
+            return new double[] { latitude, longitude };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
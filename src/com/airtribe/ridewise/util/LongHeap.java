@@ -0,0 +1,85 @@
+package com.airtribe.ridewise.util;
+
+import java.util.Arrays;
+
+// Binary min-heap of primitive longs. Graph searches pack (distance << 32 | node) into one
+// long, so entries order by distance and need no objects; a node whose distance improves is
+// simply pushed again and the outdated entry is skipped when it surfaces.
+public class LongHeap {
+    private long[] values;
+    private int size;
+
+    public LongHeap() {
+        this(64);
+    }
+
+    public LongHeap(int initialCapacity) {
+        values = new long[Math.max(1, initialCapacity)];
+    }
+
+    public static long pack(int distance, int node) {
+        return ((long) distance << 32) | (node & 0xffffffffL);
+    }
+
+    public static int distanceOf(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    public static int nodeOf(long entry) {
+        return (int) entry;
+    }
+
+    public void push(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (values[parent] <= value) {
+                break;
+            }
+            values[index] = values[parent];
+            index = parent;
+        }
+        values[index] = value;
+    }
+
+    public long peek() {
+        return values[0];
+    }
+
+    public long pop() {
+        long top = values[0];
+        long last = values[--size];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && values[child + 1] < values[child]) {
+                child++;
+            }
+            if (values[child] >= last) {
+                break;
+            }
+            values[index] = values[child];
+            index = child;
+        }
+        values[index] = last;
+        return top;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
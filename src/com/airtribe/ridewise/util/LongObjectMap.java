@@ -0,0 +1,175 @@
+package com.airtribe.ridewise.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+// Open-addressing map from long keys to objects, with the same striping, publication order and
+// tombstones as IntObjectMap. Long.MIN_VALUE marks an empty slot and cannot be used as a key.
+public class LongObjectMap<V> {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.7f;
+    private static final int DEFAULT_STRIPES = 16;
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final int stripeMask;
+
+    public LongObjectMap() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public LongObjectMap(int stripeCount) {
+        int bits = IntObjectMap.stripeBits(stripeCount);
+        this.stripes = new Stripe[1 << bits];
+        this.stripeShift = 32 - bits;
+        this.stripeMask = stripes.length - 1;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public V get(long key) {
+        int hash = mix(key);
+        Table current = stripeFor(hash).table;
+        int mask = current.keys.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long found = (long) KEYS.getAcquire(current.keys, slot);
+            if (found == key) {
+                @SuppressWarnings("unchecked")
+                V value = (V) VALUES.getAcquire(current.values, slot);
+                return value;
+            }
+            if (found == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    public V put(long key, V value) {
+        if (key == EMPTY || value == null) {
+            throw new IllegalArgumentException("Key Long.MIN_VALUE is reserved and values must be non-null");
+        }
+        int hash = mix(key);
+        @SuppressWarnings("unchecked")
+        V previous = (V) stripeFor(hash).put(key, hash, value, false);
+        return previous;
+    }
+
+    public V putIfAbsent(long key, V value) {
+        if (key == EMPTY || value == null) {
+            throw new IllegalArgumentException("Key Long.MIN_VALUE is reserved and values must be non-null");
+        }
+        int hash = mix(key);
+        @SuppressWarnings("unchecked")
+        V existing = (V) stripeFor(hash).put(key, hash, value, true);
+        return existing;
+    }
+
+    public V remove(long key) {
+        int hash = mix(key);
+        @SuppressWarnings("unchecked")
+        V previous = (V) stripeFor(hash).remove(key, hash);
+        return previous;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[(hash >>> stripeShift) & stripeMask];
+    }
+
+    static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static final class Stripe {
+        private volatile Table table = new Table(16);
+        private volatile int size;
+        private int tombstones;
+
+        private synchronized Object put(long key, int hash, Object value, boolean onlyIfAbsent) {
+            if (size + tombstones + 1 > table.keys.length * LOAD_FACTOR) {
+                rebuild(size + 1);
+            }
+            Table current = table;
+            int mask = current.keys.length - 1;
+            int slot = hash & mask;
+            while (current.keys[slot] != EMPTY && current.keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            Object previous = current.values[slot];
+            if (onlyIfAbsent && previous != null) {
+                return previous;
+            }
+            VALUES.setRelease(current.values, slot, value);
+            if (current.keys[slot] == EMPTY) {
+                KEYS.setRelease(current.keys, slot, key);
+                size++;
+            } else if (previous == null) {
+                tombstones--;
+                size++;
+            }
+            return previous;
+        }
+
+        private synchronized Object remove(long key, int hash) {
+            Table current = table;
+            int mask = current.keys.length - 1;
+            for (int slot = hash & mask; current.keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (current.keys[slot] == key) {
+                    Object previous = current.values[slot];
+                    if (previous != null) {
+                        VALUES.setRelease(current.values, slot, null);
+                        size--;
+                        tombstones++;
+                    }
+                    return previous;
+                }
+            }
+            return null;
+        }
+
+        private void rebuild(int needed) {
+            int capacity = table.keys.length;
+            while (needed > capacity * LOAD_FACTOR) {
+                capacity <<= 1;
+            }
+            Table old = table;
+            Table rebuilt = new Table(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] != EMPTY && old.values[i] != null) {
+                    int slot = mix(old.keys[i]) & mask;
+                    while (rebuilt.keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    rebuilt.keys[slot] = old.keys[i];
+                    rebuilt.values[slot] = old.values[i];
+                }
+            }
+            tombstones = 0;
+            table = rebuilt;
+        }
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+
+        private Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+}
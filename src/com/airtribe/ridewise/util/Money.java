@@ -0,0 +1,52 @@
+package com.airtribe.ridewise.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Money is a long count of minor currency units (paise), so sums are exact and allocation-free.
+// Multipliers are basis points (1.5x = 15000). Every step that can produce a fraction of a
+// minor unit rounds half-up, and doubles appear only at the edges: config input and display.
+public final class Money {
+    public static final long MINOR_UNITS_PER_MAJOR = 100;
+    public static final long BASIS_POINTS = 10_000;
+
+    private Money() {
+    }
+
+    // Rounds numerator / denominator half-up (half away from zero) for a positive denominator
+    public static long divideHalfUp(long numerator, long denominator) {
+        long half = denominator / 2;
+        return numerator >= 0
+                ? (numerator + half) / denominator
+                : -((-numerator + half) / denominator);
+    }
+
+    public static long applyMultiplier(long minorUnits, long basisPoints) {
+        return divideHalfUp(minorUnits * basisPoints, BASIS_POINTS);
+    }
+
+    public static long basisPoints(double multiplier) {
+        return Math.round(multiplier * BASIS_POINTS);
+    }
+
+    // For config values such as "80.50"; anything finer than a minor unit rounds half-up
+    public static long parseMinorUnits(String amount) {
+        return new BigDecimal(amount.trim()).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long fromMajor(double amount) {
+        return Math.round(amount * MINOR_UNITS_PER_MAJOR);
+    }
+
+    // Display only; never feed the result back into arithmetic
+    public static double toMajor(long minorUnits) {
+        return minorUnits / (double) MINOR_UNITS_PER_MAJOR;
+    }
+
+    public static String format(long minorUnits) {
+        long absolute = Math.abs(minorUnits);
+        String fraction = Long.toString(absolute % MINOR_UNITS_PER_MAJOR);
+        return (minorUnits < 0 ? "-" : "") + absolute / MINOR_UNITS_PER_MAJOR + "."
+                + (fraction.length() == 1 ? "0" + fraction : fraction);
+    }
+}
@@ -0,0 +1,101 @@
+package com.airtribe.ridewise.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 64-bit ids laid out as 41 bits of milliseconds since EPOCH_MILLIS, 10 bits of node id and
+// 12 bits of sequence. Threads claim sequence numbers in blocks with one CAS on the shared
+// state and hand them out locally, so high-rate producers rarely touch the shared counter.
+public class SnowflakeIdGenerator {
+    public static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_LIMIT = 1L << SEQUENCE_BITS;
+    private static final int DEFAULT_BLOCK_SIZE = 64;
+    // One extra bit so the state can record a fully claimed millisecond (sequence == limit)
+    private static final int STATE_SEQUENCE_BITS = SEQUENCE_BITS + 1;
+    private static final long STATE_SEQUENCE_MASK = (1L << STATE_SEQUENCE_BITS) - 1;
+    private static final char[] BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int RENDERED_LENGTH = 13;
+
+    private final long nodeBits;
+    private final int blockSize;
+    // Packed (millis << STATE_SEQUENCE_BITS | next unclaimed sequence) for the latest millisecond
+    private final AtomicLong state = new AtomicLong();
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, DEFAULT_BLOCK_SIZE);
+    }
+
+    public SnowflakeIdGenerator(int nodeId, int blockSize) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        if (blockSize <= 0 || blockSize > SEQUENCE_LIMIT || SEQUENCE_LIMIT % blockSize != 0) {
+            throw new IllegalArgumentException("Block size must be a power of two up to " + SEQUENCE_LIMIT);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.blockSize = blockSize;
+    }
+
+    public long nextId() {
+        Block block = blocks.get();
+        if (block.next == block.end) {
+            claimBlock(block);
+        }
+        return (block.millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | block.next++;
+    }
+
+    private void claimBlock(Block block) {
+        while (true) {
+            long current = state.get();
+            long stateMillis = current >>> STATE_SEQUENCE_BITS;
+            long nextSequence = current & STATE_SEQUENCE_MASK;
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+
+            long millis;
+            long sequence;
+            if (now > stateMillis) {
+                millis = now;
+                sequence = 0;
+            } else if (nextSequence < SEQUENCE_LIMIT) {
+                millis = stateMillis;
+                sequence = nextSequence;
+            } else {
+                // Every block of this millisecond is taken; borrow from the next one
+                millis = stateMillis + 1;
+                sequence = 0;
+            }
+
+            long claimed = (millis << STATE_SEQUENCE_BITS) | (sequence + blockSize);
+            if (state.compareAndSet(current, claimed)) {
+                block.millis = millis;
+                block.next = sequence;
+                block.end = sequence + blockSize;
+                return;
+            }
+        }
+    }
+
+    public static long timestampMillis(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    // Fixed-width Crockford base32, so rendered ids sort the same way as the numbers
+    public static String format(long id) {
+        char[] chars = new char[RENDERED_LENGTH];
+        for (int i = RENDERED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = BASE32[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static class Block {
+        private long millis;
+        private long next;
+        private long end;
+    }
+}